@@ -0,0 +1,36 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac CountingSiteUF.java
+ *  Execution:    none
+ *  Dependencies: SiteUF.java PercolationMetrics.java
+ *
+ *  SiteUF that records merges, find() calls and find() depth in a
+ *  PercolationMetrics object. Percolation only creates one when it is
+ *  given metrics, so unmonitored grids keep the plain SiteUF code.
+ *
+ ******************************************************************************/
+
+class CountingSiteUF extends SiteUF {
+    private final PercolationMetrics metrics;
+
+    CountingSiteUF(int n, PercolationMetrics metrics) {
+        super(n);
+        this.metrics = metrics;
+    }
+
+    @Override
+    void onFind() {
+        metrics.finds++;
+    }
+
+    @Override
+    void onStep() {
+        metrics.findSteps++;
+    }
+
+    @Override
+    int link(int rootP, int rootQ) {
+        metrics.unions++;
+        return super.link(rootP, rootQ);
+    }
+}
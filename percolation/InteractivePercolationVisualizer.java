@@ -3,7 +3,7 @@ package percolation;
 /******************************************************************************
  *  Compilation:  javac InteractivePercolationVisualizer.java
  *  Execution:    java InteractivePercolationVisualizer n
- *  Dependencies: PercolationVisualizer.java Percolation.java
+ *  Dependencies: PercolationRenderer.java Percolation.java
  *                StdDraw.java StdOut.java
  *
  *  This program takes the grid size n as a command-line argument.
@@ -28,8 +28,8 @@ public class InteractivePercolationVisualizer {
 
         StdDraw.enableDoubleBuffering();
         Percolation perc = new Percolation(n);
-        PercolationVisualizer.draw(perc, n);
-        StdDraw.show();
+        PercolationRenderer renderer = new PercolationRenderer(perc, n, 1, true);
+        renderer.render();
 
         while (true) {
 
@@ -49,12 +49,11 @@ public class InteractivePercolationVisualizer {
                     if (!perc.isOpen(i, j)) { 
                         StdOut.println(i + " " + j);
                     }
-                    perc.open(i, j);
+                    renderer.open(i, j);
                 }
 
-                // draw n-by-n percolation system
-                PercolationVisualizer.draw(perc, n);
-                StdDraw.show();
+                // draw the sites that changed
+                renderer.render();
             }
 
             StdDraw.pause(20);
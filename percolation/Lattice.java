@@ -0,0 +1,374 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac Lattice.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Topology of a percolation system: its sites, the neighbours of each
+ *  site and which sites form the top and the bottom boundaries.
+ *
+ *  Neighbours are given by direction. Directions come in opposite pairs:
+ *  the first degree()/2 are the "forward" ones, and direction
+ *  k + degree()/2 points back along direction k. Every bond of the
+ *  lattice is the forward direction of exactly one site, so bond slots
+ *  site * forwardDegree() + k number all bonds (some slots may be empty,
+ *  e.g. on the boundary).
+ *
+ *  Sites of planar lattices are numbered row by row, (row, col) -> row *
+ *  cols + col with 0-based rows and columns; spanning is from row 0 to
+ *  row rows-1. Cubic lattices number (x, y, z) -> (z * ny + y) * nx + x
+ *  and span from z = 0 to z = nz-1.
+ *
+ *  Every lattice also has a periodic (toroidal) version, where steps off
+ *  one edge come back on the opposite edge. offset(direction, axis) gives
+ *  the displacement of each step along each axis (rows, then columns for
+ *  planar lattices; x, y, z for cubic ones), which WrappingPercolation
+ *  uses to detect clusters that wrap around the torus.
+ *
+ ******************************************************************************/
+
+public abstract class Lattice {
+
+    /**
+     * Number of sites
+     * @return int
+     */
+    public abstract int sites();
+
+    /**
+     * Number of neighbour directions, forward directions first
+     * @return int
+     */
+    public abstract int degree();
+
+    /**
+     * Neighbour of site in the given direction
+     * @param site int
+     * @param direction int in [0, degree())
+     * @return int the neighbour, or -1 if there is none
+     */
+    public abstract int neighbor(int site, int direction);
+
+    /**
+     * Is site on the boundary the system percolates from?
+     * @param site int
+     * @return boolean
+     */
+    public abstract boolean isTop(int site);
+
+    /**
+     * Is site on the boundary the system percolates to?
+     * @param site int
+     * @return boolean
+     */
+    public abstract boolean isBottom(int site);
+
+    /**
+     * Number of coordinate axes
+     * @return int
+     */
+    public abstract int dimension();
+
+    /**
+     * Displacement along axis of one step in direction
+     * @param direction int in [0, degree())
+     * @param axis int in [0, dimension())
+     * @return int
+     */
+    public abstract int offset(int direction, int axis);
+
+    /**
+     * Do steps off one edge wrap around to the opposite edge?
+     * @return boolean
+     */
+    public abstract boolean isPeriodic();
+
+    /**
+     * Number of forward directions per site
+     * @return int
+     */
+    public int forwardDegree() {
+        return degree() / 2;
+    }
+
+    /**
+     * Number of bond slots, sites() * forwardDegree()
+     * @return long
+     */
+    public long bondSlots() {
+        return (long) sites() * forwardDegree();
+    }
+
+    /**
+     * Square lattice of rows x cols sites, 4 neighbours per site
+     * @param rows int
+     * @param cols int
+     * @return Lattice
+     */
+    public static Lattice square(int rows, int cols) {
+        return new Square(rows, cols, false);
+    }
+
+    /**
+     * Square lattice of rows x cols sites, optionally wrapped into a torus
+     * @param rows int
+     * @param cols int
+     * @param periodic boolean
+     * @return Lattice
+     */
+    public static Lattice square(int rows, int cols, boolean periodic) {
+        return new Square(rows, cols, periodic);
+    }
+
+    /**
+     * Triangular lattice of rows x cols sites, 6 neighbours per site. It is
+     * drawn as a square lattice with one extra diagonal, (r, c) - (r+1, c+1).
+     * @param rows int
+     * @param cols int
+     * @return Lattice
+     */
+    public static Lattice triangular(int rows, int cols) {
+        return new Triangular(rows, cols, false);
+    }
+
+    /**
+     * Triangular lattice of rows x cols sites, optionally wrapped into a torus
+     * @param rows int
+     * @param cols int
+     * @param periodic boolean
+     * @return Lattice
+     */
+    public static Lattice triangular(int rows, int cols, boolean periodic) {
+        return new Triangular(rows, cols, periodic);
+    }
+
+    /**
+     * Honeycomb lattice of rows x cols sites, 3 neighbours per site, drawn as
+     * a brick wall: left, right, and down if row + col is even or up if odd.
+     * @param rows int
+     * @param cols int
+     * @return Lattice
+     */
+    public static Lattice honeycomb(int rows, int cols) {
+        return new Honeycomb(rows, cols, false);
+    }
+
+    /**
+     * Honeycomb lattice of rows x cols sites, optionally wrapped into a
+     * torus; a periodic honeycomb needs an even number of rows and columns
+     * @param rows int
+     * @param cols int
+     * @param periodic boolean
+     * @return Lattice
+     */
+    public static Lattice honeycomb(int rows, int cols, boolean periodic) {
+        return new Honeycomb(rows, cols, periodic);
+    }
+
+    /**
+     * Simple cubic lattice of nx x ny x nz sites, 6 neighbours per site
+     * @param nx int
+     * @param ny int
+     * @param nz int
+     * @return Lattice
+     */
+    public static Lattice cubic(int nx, int ny, int nz) {
+        return new Cubic(nx, ny, nz, false);
+    }
+
+    /**
+     * Simple cubic lattice of nx x ny x nz sites, optionally periodic along
+     * all three axes
+     * @param nx int
+     * @param ny int
+     * @param nz int
+     * @param periodic boolean
+     * @return Lattice
+     */
+    public static Lattice cubic(int nx, int ny, int nz, boolean periodic) {
+        return new Cubic(nx, ny, nz, periodic);
+    }
+
+    /**
+     * Rows and columns of a planar lattice
+     */
+    private abstract static class Planar extends Lattice {
+        final int rows, cols;
+        private final boolean periodic;
+        private final int[] dr, dc; // row and column step of each direction
+
+        Planar(int rows, int cols, boolean periodic, int[] dr, int[] dc) {
+            if (rows < 1 || cols < 1) throw new IllegalArgumentException("Rows and cols need to be bigger than 0");
+            if ((long) rows * cols > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many sites");
+            this.rows = rows;
+            this.cols = cols;
+            this.periodic = periodic;
+            this.dr = dr;
+            this.dc = dc;
+        }
+
+        @Override
+        public int degree() {
+            return dr.length;
+        }
+
+        @Override
+        public int neighbor(int site, int direction) {
+            return step(site, dr[direction], dc[direction]);
+        }
+
+        @Override
+        public int dimension() {
+            return 2;
+        }
+
+        @Override
+        public int offset(int direction, int axis) {
+            return axis == 0 ? dr[direction] : dc[direction];
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return periodic;
+        }
+
+        @Override
+        public int sites() {
+            return rows * cols;
+        }
+
+        @Override
+        public boolean isTop(int site) {
+            return site < cols;
+        }
+
+        @Override
+        public boolean isBottom(int site) {
+            return site >= (rows - 1) * cols;
+        }
+
+        /**
+         * Site at (row + dr, col + dc) from site, or -1 if outside the lattice
+         */
+        int step(int site, int dr, int dc) {
+            int r = site / cols + dr;
+            int c = site % cols + dc;
+            if (periodic) {
+                r = Math.floorMod(r, rows);
+                c = Math.floorMod(c, cols);
+            } else if (r < 0 || r >= rows || c < 0 || c >= cols) {
+                return -1;
+            }
+            return r * cols + c;
+        }
+    }
+
+    private static final class Square extends Planar {
+        // right, down, left, up
+        private static final int[] DR = { 0, 1, 0, -1 };
+        private static final int[] DC = { 1, 0, -1, 0 };
+
+        Square(int rows, int cols, boolean periodic) {
+            super(rows, cols, periodic, DR, DC);
+        }
+    }
+
+    private static final class Triangular extends Planar {
+        // right, down, down-right, left, up, up-left
+        private static final int[] DR = { 0, 1, 1, 0, -1, -1 };
+        private static final int[] DC = { 1, 0, 1, -1, 0, -1 };
+
+        Triangular(int rows, int cols, boolean periodic) {
+            super(rows, cols, periodic, DR, DC);
+        }
+    }
+
+    private static final class Honeycomb extends Planar {
+        // right, down (even sites only), left, up (odd sites only)
+        private static final int[] DR = { 0, 1, 0, -1 };
+        private static final int[] DC = { 1, 0, -1, 0 };
+
+        Honeycomb(int rows, int cols, boolean periodic) {
+            super(rows, cols, periodic, DR, DC);
+            // wrapping must keep the parity of row + col, or bonds would not match up
+            if (periodic && (rows % 2 != 0 || cols % 2 != 0))
+                throw new IllegalArgumentException("A periodic honeycomb needs even rows and cols");
+        }
+
+        @Override
+        public int neighbor(int site, int direction) {
+            boolean even = ((site / cols + site % cols) & 1) == 0;
+            if (direction == 1 && !even) return -1;
+            if (direction == 3 && even) return -1;
+            return super.neighbor(site, direction);
+        }
+    }
+
+    private static final class Cubic extends Lattice {
+        // +x, +y, +z, -x, -y, -z
+        private static final int[] DX = { 1, 0, 0, -1, 0, 0 };
+        private static final int[] DY = { 0, 1, 0, 0, -1, 0 };
+        private static final int[] DZ = { 0, 0, 1, 0, 0, -1 };
+        private final int nx, ny, nz;
+        private final boolean periodic;
+
+        Cubic(int nx, int ny, int nz, boolean periodic) {
+            if (nx < 1 || ny < 1 || nz < 1) throw new IllegalArgumentException("Dimensions need to be bigger than 0");
+            if ((long) nx * ny * nz > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many sites");
+            this.nx = nx;
+            this.ny = ny;
+            this.nz = nz;
+            this.periodic = periodic;
+        }
+
+        @Override
+        public int sites() {
+            return nx * ny * nz;
+        }
+
+        @Override
+        public int degree() {
+            return 6;
+        }
+
+        @Override
+        public int neighbor(int site, int direction) {
+            int x = site % nx + DX[direction];
+            int y = site / nx % ny + DY[direction];
+            int z = site / (nx * ny) + DZ[direction];
+            if (periodic) {
+                x = Math.floorMod(x, nx);
+                y = Math.floorMod(y, ny);
+                z = Math.floorMod(z, nz);
+            } else if (x < 0 || x >= nx || y < 0 || y >= ny || z < 0 || z >= nz) {
+                return -1;
+            }
+            return (z * ny + y) * nx + x;
+        }
+
+        @Override
+        public int dimension() {
+            return 3;
+        }
+
+        @Override
+        public int offset(int direction, int axis) {
+            return axis == 0 ? DX[direction] : axis == 1 ? DY[direction] : DZ[direction];
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return periodic;
+        }
+
+        @Override
+        public boolean isTop(int site) {
+            return site < nx * ny;
+        }
+
+        @Override
+        public boolean isBottom(int site) {
+            return site >= (nz - 1) * nx * ny;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac LatticePercolation.java
+ *  Execution:    java LatticePercolation [trials seed]
+ *  Dependencies: Lattice.java SiteUF.java StdOut.java
+ *
+ *  Site or bond percolation on any Lattice, using the same flagged
+ *  union-find as Percolation.
+ *
+ *  In SITE mode the elements are the sites: opening a site joins it with
+ *  its open neighbours. In BOND mode every site is present and the
+ *  elements are the bond slots of the lattice: opening a bond joins its
+ *  two end sites. Either way the system percolates when a component
+ *  touches both the top and the bottom boundary.
+ *
+ *  The main method estimates the thresholds of the built-in lattices.
+ *
+ *  % java LatticePercolation 100 42
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+public class LatticePercolation {
+    private static final int TOP = 1, BOTTOM = 2; // component flags
+
+    /**
+     * What gets opened: sites or bonds
+     */
+    public enum Type { SITE, BOND }
+
+    private final Lattice lattice;
+    private final Type type;
+    private final int forward;        // forward directions per site
+    private final int elements;       // sites or bond slots
+    private final long[] open;        // bit e set if element e is open
+    private final SiteUF uf;
+    private int openElements;
+    private boolean percolates;
+
+    /**
+     * Creates a system on lattice with every site (SITE) or bond (BOND) blocked
+     * @param lattice Lattice
+     * @param type Type
+     */
+    public LatticePercolation(Lattice lattice, Type type) {
+        if (lattice == null || type == null) throw new IllegalArgumentException("Lattice and type must be not null");
+        if (lattice.sites() > SiteUF.MAX_SITES) throw new IllegalArgumentException("Lattice needs at most " + SiteUF.MAX_SITES + " sites");
+        long slots = type == Type.SITE ? lattice.sites() : lattice.bondSlots();
+        if (slots > Integer.MAX_VALUE) throw new IllegalArgumentException("Lattice has too many bonds");
+        this.lattice = lattice;
+        this.type = type;
+        this.forward = lattice.forwardDegree();
+        this.elements = (int) slots;
+        open = new long[(int) ((slots + 63) >>> 6)];
+        uf = new SiteUF(lattice.sites());
+        reset();
+    }
+
+    /**
+     * Number of elements that can be opened: sites in SITE mode, bond slots
+     * in BOND mode
+     * @return int
+     */
+    public int elements() {
+        return elements;
+    }
+
+    /**
+     * Does element e exist? Every site does; a bond slot may be empty on the
+     * boundary of the lattice or, for the honeycomb, for half the sites.
+     * @param e int
+     * @return boolean
+     */
+    public boolean exists(int e) {
+        checkElement(e);
+        return type == Type.SITE || lattice.neighbor(e / forward, e % forward) >= 0;
+    }
+
+    /**
+     * Opens element e (a site or a bond slot) if it is not already open
+     * @param e int
+     */
+    public void open(int e) {
+        checkElement(e);
+        long bit = 1L << e;
+        if ((open[e >>> 6] & bit) != 0) return;
+
+        int root;
+        if (type == Type.SITE) {
+            // a blocked site is still a singleton, so it is its own root
+            root = e;
+            uf.mark(e, boundaryFlags(e));
+            for (int k = 0; k < lattice.degree(); k++) {
+                int nb = lattice.neighbor(e, k);
+                if (nb >= 0 && isSet(nb)) root = uf.union(e, nb);
+            }
+        } else {
+            int a = e / forward;
+            int b = lattice.neighbor(a, e % forward);
+            if (b < 0) throw new IllegalArgumentException("Bond slot " + e + " is empty");
+            uf.mark(a, boundaryFlags(a));
+            uf.mark(b, boundaryFlags(b));
+            root = uf.union(a, b);
+        }
+        open[e >>> 6] |= bit;
+        openElements++;
+        if (uf.flags(root) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * Is element e open?
+     * @param e int
+     * @return boolean
+     */
+    public boolean isOpen(int e) {
+        checkElement(e);
+        return isSet(e);
+    }
+
+    /**
+     * Is site connected to the top boundary through open elements?
+     * @param site int
+     * @return boolean
+     */
+    public boolean isFull(int site) {
+        if (site < 0 || site >= lattice.sites())
+            throw new IllegalArgumentException("site must be in [0, " + (lattice.sites() - 1) + "]");
+        if (type == Type.SITE && !isSet(site)) return false;
+        return lattice.isTop(site) || (uf.flags(uf.find(site)) & TOP) != 0;
+    }
+
+    /**
+     * Number of open elements
+     * @return int
+     */
+    public int numberOfOpenElements() {
+        return openElements;
+    }
+
+    /**
+     * Does the system percolate?
+     * @return boolean
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Blocks every element again. Only sites touched by open elements are
+     * reset in the union-find; blocked elements are skipped 64 at a time.
+     */
+    public void reset() {
+        for (int w = 0; w < open.length && openElements > 0; w++) {
+            long bits = open[w];
+            if (bits == 0) continue;
+            open[w] = 0;
+            openElements -= Long.bitCount(bits);
+            for (; bits != 0; bits &= bits - 1) {
+                int e = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (type == Type.SITE) {
+                    uf.reset(e);
+                } else {
+                    uf.reset(e / forward);
+                    uf.reset(lattice.neighbor(e / forward, e % forward));
+                }
+            }
+        }
+        openElements = 0;
+        // a lattice one layer thick already percolates when all its sites are present
+        percolates = type == Type.BOND && lattice.isTop(0) && lattice.isBottom(0);
+    }
+
+    private int boundaryFlags(int site) {
+        return (lattice.isTop(site) ? TOP : 0) | (lattice.isBottom(site) ? BOTTOM : 0);
+    }
+
+    private boolean isSet(int e) {
+        return (open[e >>> 6] & (1L << e)) != 0;
+    }
+
+    private void checkElement(int e) {
+        if (e < 0 || e >= elements)
+            throw new IllegalArgumentException("element must be in [0, " + (elements - 1) + "]");
+    }
+
+    /**
+     * Opens random existing elements until the system percolates
+     * @return double fraction of existing elements open at that point
+     */
+    private static double threshold(LatticePercolation p, SplittableRandom random) {
+        p.reset();
+        int[] order = new int[p.elements()];
+        int existing = 0;
+        for (int e = 0; e < order.length; e++) {
+            if (p.exists(e)) order[existing++] = e;
+        }
+        for (int k = 0; !p.percolates(); k++) {
+            int j = random.nextInt(k, existing);
+            int e = order[j];
+            order[j] = order[k];
+            order[k] = e;
+            p.open(e);
+        }
+        return (double) p.numberOfOpenElements() / existing;
+    }
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        SplittableRandom random = args.length > 1 ? new SplittableRandom(Long.parseLong(args[1])) : new SplittableRandom();
+        String[] names = { "square 128x128", "triangular 128x128", "honeycomb 128x128", "cubic 32x32x32" };
+        Lattice[] lattices = {
+            Lattice.square(128, 128), Lattice.triangular(128, 128), Lattice.honeycomb(128, 128), Lattice.cubic(32, 32, 32)
+        };
+        for (int i = 0; i < lattices.length; i++) {
+            for (Type type : Type.values()) {
+                LatticePercolation p = new LatticePercolation(lattices[i], type);
+                double sum = 0.0;
+                for (int t = 0; t < trials; t++) sum += threshold(p, random);
+                StdOut.printf("%-20s %-5s threshold = %.4f%n", names[i], type, sum / trials);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac OffHeapLongArray.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Fixed-size array of longs with long indices, stored outside the Java
+ *  heap in direct buffers of CHUNK longs each. The memory starts zeroed
+ *  and is released when the array becomes unreachable.
+ *
+ ******************************************************************************/
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+class OffHeapLongArray {
+    private static final int CHUNK_BITS = 27;                 // 2^27 longs = 1 GiB per buffer
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK - 1;
+    private final LongBuffer[] chunks;
+    private final long length;
+
+    /**
+     * Creates an array of n zeros
+     * @param n long
+     */
+    OffHeapLongArray(long n) {
+        if (n < 0) throw new IllegalArgumentException("Length needs to be at least 0");
+        long count = (n + CHUNK - 1) >>> CHUNK_BITS;
+        if (count > Integer.MAX_VALUE) throw new IllegalArgumentException("Length too large: " + n);
+        length = n;
+        chunks = new LongBuffer[(int) count];
+        for (int c = 0; c < chunks.length; c++) {
+            long longs = Math.min(CHUNK, n - ((long) c << CHUNK_BITS));
+            chunks[c] = ByteBuffer.allocateDirect((int) longs * Long.BYTES)
+                                  .order(ByteOrder.nativeOrder())
+                                  .asLongBuffer();
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    long get(long i) {
+        return chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & CHUNK_MASK));
+    }
+
+    void set(long i, long value) {
+        chunks[(int) (i >>> CHUNK_BITS)].put((int) (i & CHUNK_MASK), value);
+    }
+}
@@ -0,0 +1,191 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac OffHeapPercolation.java
+ *  Execution:    java OffHeapPercolation n
+ *  Dependencies: OffHeapLongArray.java StdOut.java
+ *
+ *  Percolation on grids too large for Percolation: sites are indexed
+ *  with longs and both the open-site bitset and the union-find live off
+ *  the Java heap, so grids with billions of sites add nothing for the
+ *  garbage collector to scan or copy.
+ *
+ *  The union-find works like SiteUF, one long per site, with path halving,
+ *  union by size and TOP/BOTTOM flags on the roots. Entries are encoded so
+ *  that zero means "a root of size 1 with no flags", which is exactly what
+ *  freshly allocated off-heap memory contains:
+ *
+ *      entry > 0   parent is entry - 1
+ *      entry <= 0  root, -entry = (size - 1) << 2 | flags
+ *
+ *  Memory use is about 8.125 bytes per site; give the JVM enough with
+ *  -XX:MaxDirectMemorySize.
+ *
+ *  % java -XX:MaxDirectMemorySize=40g OffHeapPercolation 60000
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+public class OffHeapPercolation {
+    private static final int FLAG_BITS = 2;
+    private static final long TOP = 1, BOTTOM = 2, FLAG_MASK = 3; // component flags
+    private final OffHeapLongArray grid; // bit idx set if site idx is open
+    private final OffHeapLongArray uf;
+    private final int size; // grid size
+    private final long sites; // size * size
+    private long openSites;
+    private boolean percolates;
+
+    /**
+     * Creates a nXn grid, with all sites blocked
+     * @param n int
+     */
+    public OffHeapPercolation(int n) {
+        if (n < 1) throw new IllegalArgumentException("Size needs to be bigger than 0");
+        size = n;
+        sites = (long) n * n;
+        grid = new OffHeapLongArray((sites + 63) >>> 6);
+        uf = new OffHeapLongArray(sites);
+        openSites = 0;
+    }
+
+    /**
+     * Opens site (row, col) if it is not already open
+     * @param row int
+     * @param col int
+     */
+    public void open(int row, int col) {
+        checkBounds(row, col);
+        long idx = calcIndex(row, col);
+        long word = grid.get(idx >>> 6);
+        long bit = 1L << idx;
+        if ((word & bit) != 0) return;
+
+        grid.set(idx >>> 6, word | bit);
+        openSites++;
+        long root = idx;
+        if (row > 1 && isSet(idx - size)) root = union(idx, idx - size);
+        if (row < size && isSet(idx + size)) root = union(idx, idx + size);
+        if (col > 1 && isSet(idx - 1)) root = union(idx, idx - 1);
+        if (col < size && isSet(idx + 1)) root = union(idx, idx + 1);
+        // Flag the component if it touches the top or bottom row
+        long meta = -uf.get(root);
+        long flags = meta & FLAG_MASK;
+        if (row == 1) flags |= TOP;
+        if (row == size) flags |= BOTTOM;
+        uf.set(root, -(meta | flags));
+        if (flags == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * Is site (row, col) open?
+     *
+     * @param row int
+     * @param col int
+     * @return boolean
+     */
+    public boolean isOpen(int row, int col) {
+        checkBounds(row, col);
+        return isSet(calcIndex(row, col));
+    }
+
+    /**
+     * Is site (row, col) full? (Connected to the top site)
+     * @param row int
+     * @param col int
+     * @return boolean
+     */
+    public boolean isFull(int row, int col) {
+        checkBounds(row, col);
+        long idx = calcIndex(row, col);
+        return isSet(idx) && (-uf.get(find(idx)) & TOP) != 0;
+    }
+
+    /**
+     * Number of sites opened in the system
+     *
+     * @return long
+     */
+    public long numberOfOpenSites() {
+        return openSites;
+    }
+
+    /**
+     * Does the system percolates?
+     *
+     * @return boolean
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    private long find(long p) {
+        long q;
+        while ((q = uf.get(p)) > 0) {
+            long g = uf.get(q - 1);
+            if (g <= 0) return q - 1;
+            uf.set(p, g); // path halving: point p at its grandparent
+            p = g - 1;
+        }
+        return p;
+    }
+
+    private long union(long p, long q) {
+        long rootP = find(p);
+        long rootQ = find(q);
+        if (rootP == rootQ) return rootP;
+
+        long metaP = -uf.get(rootP);
+        long metaQ = -uf.get(rootQ);
+        if (metaP >>> FLAG_BITS < metaQ >>> FLAG_BITS) {
+            long tmp = rootP;
+            rootP = rootQ;
+            rootQ = tmp;
+        }
+        // stored sizes are size - 1, so the merged size needs one more
+        long merged = (metaP & ~FLAG_MASK) + (metaQ & ~FLAG_MASK) + (1L << FLAG_BITS);
+        uf.set(rootP, -(merged | ((metaP | metaQ) & FLAG_MASK)));
+        uf.set(rootQ, rootP + 1);
+        return rootP;
+    }
+
+    private boolean isSet(long idx) {
+        return (grid.get(idx >>> 6) & (1L << idx)) != 0;
+    }
+
+    /**
+     * Calculates index of site (row, col)
+     *
+     * @param row int
+     * @param col int
+     * @return long
+     */
+    private long calcIndex(int row, int col) {
+        return (long) (row - 1) * size + (col - 1);
+    }
+
+    /**
+     * Checks if site (row, col) is inside allowed bounds
+     *
+     * @param row int
+     * @param col int
+     */
+    private void checkBounds(int row, int col) {
+        if (row < 1 || row > size || col < 1 || col > size)
+            throw new IllegalArgumentException("row and col must be in [1, " + size + "]");
+    }
+
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        SplittableRandom random = new SplittableRandom();
+        OffHeapPercolation p = new OffHeapPercolation(n);
+        while (!p.percolates()) {
+            p.open(random.nextInt(1, n + 1), random.nextInt(1, n + 1));
+        }
+        StdOut.println("sites        = " + (long) n * n);
+        StdOut.println("open sites   = " + p.numberOfOpenSites());
+        StdOut.println("threshold    = " + (double) p.numberOfOpenSites() / ((long) n * n));
+    }
+}
@@ -2,33 +2,70 @@ package percolation;
 /******************************************************************************
  *  Compilation:  javac Percolation.java
  *  Execution:    java Percolation
- *  Dependencies: WeightedQuickUnionUF.java
+ *  Dependencies: SiteUF.java CountingSiteUF.java PercolationMetrics.java
  *
  *  ADT for Percolation object
  *
+ *  The object can be reset and reused for another run, which only undoes
+ *  the sites opened so far instead of allocating a new grid.
+ *
+ *  Open sites are kept as a bitset, one bit per site in a long[], so the
+ *  grid takes n*n/8 bytes and the four neighbours of a site are checked
+ *  with word operations (left and right usually share the site's word).
+ *  reset() skips over empty words, so it costs n*n/64 word reads plus
+ *  the number of opened sites.
+ *
+ *  Cluster statistics (number of clusters, largest cluster and a histogram
+ *  of cluster sizes in power-of-two bins) are updated as sites are opened
+ *  and merged, so they can be read in O(1) without scanning the grid.
+ *
+ *  When created with a PercolationMetrics object, open, union and find
+ *  calls are counted into it; without one, the only cost is a null check
+ *  per open().
+ *
+ *  A single union-find is used: instead of virtual top and bottom sites,
+ *  each component root carries a TOP and a BOTTOM flag. A site is full when
+ *  its root has TOP set, and the system percolates as soon as one root has
+ *  both, so there is no backwash and no second union-find to keep in sync.
  *
  ******************************************************************************/
 
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import java.util.Arrays;
 
 public class Percolation {
-    private boolean[] grid; // Percolation grid
+    private static final int TOP = 1, BOTTOM = 2; // component flags
+    private final long[] grid; // Percolation grid, bit idx set if site idx is open
     private final int size; // grid size
+    private final int sites; // size * size
     private int openSites;
-    private final WeightedQuickUnionUF uf, uff;
+    private boolean percolates;
+    private int clusters, largestCluster;
+    private final int[] clusterBins = new int[32]; // clusterBins[b] = clusters with size in [2^b, 2^(b+1))
+    private final SiteUF uf;
+    private final PercolationMetrics metrics; // null unless monitored
 
     /**
      * Creates a nXn grid, with all sites blocked
      * @param n int
      */
     public Percolation(int n) {
+        this(n, null);
+    }
+
+    /**
+     * Creates a nXn grid, with all sites blocked, that counts its operations
+     * into metrics
+     * @param n int
+     * @param metrics PercolationMetrics, or null to count nothing
+     */
+    public Percolation(int n, PercolationMetrics metrics) {
         if (n < 1) throw new IllegalArgumentException("Size needs to be bigger than 0");
+        if ((long) n * n > SiteUF.MAX_SITES) throw new IllegalArgumentException("Size needs to be at most " + (int) Math.sqrt(SiteUF.MAX_SITES));
         size = n;
-        grid = new boolean[n * n + 2];
-        grid[0] = true;
-        grid[n * n + 1] = true;
-        uf = new WeightedQuickUnionUF(n * n + 2);
-        uff = new WeightedQuickUnionUF(n * n + 1);
+        sites = n * n;
+        grid = new long[(sites + 63) >>> 6];
+        uf = metrics == null ? new SiteUF(sites) : new CountingSiteUF(sites, metrics);
+        this.metrics = metrics;
         openSites = 0;
     }
 
@@ -39,20 +76,96 @@ public class Percolation {
      */
     public void open(int row, int col) {
         checkBounds(row, col);
-        int idx = calcIndex(row, col);
-        if (!grid[idx]) {
-            grid[idx] = true;
+        open(calcIndex(row, col), row, col);
+    }
+
+    /**
+     * Opens every site in sites, given as indices (row - 1) * n + (col - 1).
+     * All indices are validated before any site is opened, so the sites
+     * are either all opened or none is.
+     *
+     * @param sites int[]
+     * @return int position in sites of the site that made the system
+     *         percolate, or -1 if it did not start percolating in this call
+     */
+    public int openAll(int[] sites) {
+        if (sites == null) throw new IllegalArgumentException("Sites must be not null");
+        for (int idx : sites) {
+            if (idx < 0 || idx >= this.sites)
+                throw new IllegalArgumentException("index must be in [0, " + (this.sites - 1) + "]");
+        }
+
+        int first = -1;
+        int i = 0;
+        if (!percolates) {
+            for (; i < sites.length; i++) {
+                int idx = sites[i];
+                int row = idx / size;
+                open(idx, row + 1, idx - row * size + 1);
+                if (percolates) {
+                    first = i++;
+                    break;
+                }
+            }
+        }
+        for (; i < sites.length; i++) {
+            int idx = sites[i];
+            int row = idx / size;
+            open(idx, row + 1, idx - row * size + 1);
+        }
+        return first;
+    }
+
+    private void open(int idx, int row, int col) {
+        long bit = 1L << idx; // shifts are mod 64, so this is bit idx % 64 of word idx / 64
+        if (metrics != null) {
+            metrics.opens++;
+            if ((grid[idx >>> 6] & bit) != 0) metrics.redundantOpens++;
+        }
+        if ((grid[idx >>> 6] & bit) == 0) {
+            grid[idx >>> 6] |= bit;
             openSites++;
-            if (row > 1 && isOpen(row - 1, col)) doubleUnion(idx, calcIndex(row - 1, col));
-            if (row < size && isOpen(row + 1, col)) doubleUnion(idx, calcIndex(row + 1, col));
-            if (col > 1 && isOpen(row, col - 1)) doubleUnion(idx, calcIndex(row, col - 1));
-            if (col < size && isOpen(row, col + 1)) doubleUnion(idx, calcIndex(row, col + 1));
-            // Union with top and bottom nodes
-            if (row == 1) doubleUnion(idx, 0);
-            if (row == size) uf.union(idx, size * size + 1);
+            // the new site is a cluster of its own until it meets an open neighbour
+            clusters++;
+            clusterBins[0]++;
+            if (largestCluster == 0) largestCluster = 1;
+            int root = idx;
+            if (row > 1 && isSet(idx - size)) root = merge(root, idx - size);
+            if (row < size && isSet(idx + size)) root = merge(root, idx + size);
+            if (col > 1 && isSet(idx - 1)) root = merge(root, idx - 1);
+            if (col < size && isSet(idx + 1)) root = merge(root, idx + 1);
+            // Flag the component if it touches the top or bottom row
+            int flags = uf.flags(root);
+            if (row == 1) flags = uf.mark(root, TOP);
+            if (row == size) flags = uf.mark(root, BOTTOM);
+            if (flags == (TOP | BOTTOM)) percolates = true;
         }
     }
 
+    /**
+     * Joins the cluster rooted at root with the cluster of open site nb,
+     * keeping the cluster statistics up to date
+     *
+     * @param root int
+     * @param nb int
+     * @return int root of the joined cluster
+     */
+    private int merge(int root, int nb) {
+        int other = uf.find(nb);
+        if (other == root) return root;
+        int a = uf.size(root), b = uf.size(other);
+        clusterBins[bin(a)]--;
+        clusterBins[bin(b)]--;
+        clusterBins[bin(a + b)]++;
+        clusters--;
+        if (a + b > largestCluster) largestCluster = a + b;
+        return uf.link(root, other);
+    }
+
+    private static int bin(int clusterSize) {
+        return 31 - Integer.numberOfLeadingZeros(clusterSize);
+    }
+
     /**
      * Is site (row, col) open?
      *
@@ -62,7 +175,7 @@ public class Percolation {
      */
     public boolean isOpen(int row, int col) {
         checkBounds(row, col);
-        return grid[calcIndex(row, col)];
+        return isSet(calcIndex(row, col));
     }
 
     /**
@@ -73,7 +186,7 @@ public class Percolation {
      */
     public boolean isFull(int row, int col) {
         checkBounds(row, col);
-        return isOpen(row, col) && uff.connected(0, calcIndex(row, col));
+        return isOpen(row, col) && (uf.flags(uf.find(calcIndex(row, col))) & TOP) != 0;
     }
 
     /**
@@ -85,13 +198,85 @@ public class Percolation {
         return openSites;
     }
 
+    /**
+     * Number of clusters of open sites
+     *
+     * @return int
+     */
+    public int numberOfClusters() {
+        return clusters;
+    }
+
+    /**
+     * Number of sites in the largest cluster
+     *
+     * @return int
+     */
+    public int largestClusterSize() {
+        return largestCluster;
+    }
+
+    /**
+     * Number of open sites in the cluster of site (row, col), 0 if blocked
+     *
+     * @param row int
+     * @param col int
+     * @return int
+     */
+    public int clusterSize(int row, int col) {
+        checkBounds(row, col);
+        int idx = calcIndex(row, col);
+        return isSet(idx) ? uf.size(uf.find(idx)) : 0;
+    }
+
+    /**
+     * Histogram of cluster sizes: entry b is the number of clusters with
+     * between 2^b and 2^(b+1) - 1 sites
+     *
+     * @return int[]
+     */
+    public int[] clusterSizeHistogram() {
+        return clusterBins.clone();
+    }
+
     /**
      * Does the system percolates?
      *
      * @return boolean
      */
     public boolean percolates() {
-        return uf.connected(0, size * size + 1);
+        return percolates;
+    }
+
+    /**
+     * Blocks every site again. Only the opened sites are touched in the
+     * union-find; blocked sites are skipped 64 at a time.
+     */
+    public void reset() {
+        for (int w = 0; w < grid.length && openSites > 0; w++) {
+            long bits = grid[w];
+            if (bits == 0) continue;
+            grid[w] = 0;
+            openSites -= Long.bitCount(bits);
+            for (; bits != 0; bits &= bits - 1) {
+                uf.reset((w << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        openSites = 0;
+        percolates = false;
+        clusters = 0;
+        largestCluster = 0;
+        Arrays.fill(clusterBins, 0);
+    }
+
+    /**
+     * Is the site with index idx open?
+     *
+     * @param idx int
+     * @return boolean
+     */
+    private boolean isSet(int idx) {
+        return (grid[idx >>> 6] & (1L << idx)) != 0;
     }
 
     /**
@@ -102,7 +287,7 @@ public class Percolation {
      * @return int
      */
     private int calcIndex(int row, int col) {
-        return (row - 1) * size + (col - 1) + 1;
+        return (row - 1) * size + (col - 1);
     }
 
     /**
@@ -115,9 +300,4 @@ public class Percolation {
         if (row < 1 || row > size || col < 1 || col > size)
             throw new IllegalArgumentException("row and col must be in [1, " + size + "]");
     }
-
-    private void doubleUnion(int idx1, int idx2) {
-        uf.union(idx1, idx2);
-        uff.union(idx1, idx2);
-    }
 }
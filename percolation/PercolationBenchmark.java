@@ -0,0 +1,186 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac PercolationBenchmark.java
+ *  Execution:    java -Xmx2g PercolationBenchmark [n1 n2 ...]
+ *  Dependencies: Percolation.java TrialWorker.java RunningStats.java StdOut.java
+ *
+ *  Micro-benchmarks for the percolation package:
+ *
+ *    open       time per open(row, col), opening a blocked grid up to the
+ *               given density in a random order (the reset() between
+ *               passes is included)
+ *    isFull     time per isFull(row, col) on random sites of a grid open
+ *               up to the given density
+ *    percolates time per percolates() call, alternating between a grid
+ *               that percolates and one that does not
+ *    trial      time per PercolationStats trial (one TrialWorker.run)
+ *
+ *  Every benchmark replays the same random data (fixed SEED) and runs
+ *  WARMUP untimed iterations before MEASURE timed ones, so the JIT has
+ *  compiled the hot paths before anything is measured. Results are the
+ *  mean and the 95% confidence half-width over the timed iterations.
+ *  Every result is added to a sink that is printed at the end, so no
+ *  call can be removed as dead code.
+ *
+ *  Baseline (single core, OpenJDK 17, -Xmx2g, default sizes):
+ *
+ *  % java -Xmx2g PercolationBenchmark
+ *  benchmark        n  density        score      error  unit
+ *  open            64     0.30       26.980 +-   0.740  ns/op
+ *  open            64     0.59       37.875 +-   2.689  ns/op
+ *  open            64     0.90       66.472 +-   0.651  ns/op
+ *  isFull          64     0.30       11.804 +-   0.285  ns/op
+ *  isFull          64     0.59       14.794 +-   0.092  ns/op
+ *  isFull          64     0.90        7.629 +-   0.221  ns/op
+ *  percolates      64        -        1.367 +-   0.013  ns/op
+ *  trial           64        -        0.200 +-   0.001  ms/op
+ *  open           512     0.30       49.044 +-   3.410  ns/op
+ *  open           512     0.59       77.102 +-   1.084  ns/op
+ *  open           512     0.90       75.792 +-   4.100  ns/op
+ *  isFull         512     0.30       12.484 +-   0.852  ns/op
+ *  isFull         512     0.59       14.324 +-   0.607  ns/op
+ *  isFull         512     0.90        9.403 +-   0.836  ns/op
+ *  percolates     512        -        1.326 +-   0.110  ns/op
+ *  trial          512        -       12.556 +-   0.724  ms/op
+ *  open          2048     0.30      120.575 +-   6.248  ns/op
+ *  open          2048     0.59      164.320 +-  10.592  ns/op
+ *  open          2048     0.90      160.441 +-  17.527  ns/op
+ *  isFull        2048     0.30       27.540 +-   2.137  ns/op
+ *  isFull        2048     0.59       23.934 +-   1.748  ns/op
+ *  isFull        2048     0.90       20.030 +-   1.845  ns/op
+ *  percolates    2048        -        1.012 +-   0.016  ns/op
+ *  trial         2048        -      440.115 +-  31.278  ms/op
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+public class PercolationBenchmark {
+    private static final int WARMUP = 5;
+    private static final int MEASURE = 10;
+    private static final long SEED = 20170201L;
+    private static final double[] DENSITIES = { 0.30, 0.5927, 0.90 }; // below, at and above the threshold
+    private static final int QUERIES = 1 << 20;                      // isFull() calls per iteration
+    private static final int CALLS = 1 << 24;                        // percolates() calls per iteration
+    private static final int MIN_OPS = 1 << 20;                      // least open() calls per iteration
+
+    private static long sink; // keeps results alive
+
+    /**
+     * One timed unit of work
+     */
+    private interface Op {
+        /**
+         * Runs the operation once
+         * @return long operations done, the time is divided by this
+         */
+        long run();
+    }
+
+    /**
+     * Runs WARMUP + MEASURE iterations of op and prints the time per operation
+     */
+    private static void measure(String name, int n, double density, Op op, double unitNanos, String unit) {
+        for (int i = 0; i < WARMUP; i++) op.run();
+        RunningStats stats = new RunningStats();
+        for (int i = 0; i < MEASURE; i++) {
+            long start = System.nanoTime();
+            long ops = op.run();
+            stats.add((System.nanoTime() - start) / unitNanos / ops);
+        }
+        double error = 1.96 * stats.stddev() / Math.sqrt(MEASURE);
+        StdOut.printf("%-13s %4d %8s %12.3f +- %7.3f  %s%n", name, n,
+                Double.isNaN(density) ? "-" : String.format("%.2f", density), stats.mean(), error, unit);
+    }
+
+    /**
+     * Random permutation of the sites of an n-by-n grid, as 1-based rows and columns
+     */
+    private static int[][] randomSites(int n, SplittableRandom random) {
+        int sites = n * n;
+        int[] order = new int[sites];
+        for (int i = 0; i < sites; i++) order[i] = i;
+        for (int i = sites - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        int[] rows = new int[sites], cols = new int[sites];
+        for (int i = 0; i < sites; i++) {
+            rows[i] = order[i] / n + 1;
+            cols[i] = order[i] % n + 1;
+        }
+        return new int[][] { rows, cols };
+    }
+
+    private static void benchmark(int n) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[][] order = randomSites(n, random);
+        int[] rows = order[0], cols = order[1];
+        Percolation p = new Percolation(n);
+
+        for (double density : DENSITIES) {
+            int count = Math.max(1, (int) (density * n * n));
+            int passes = Math.max(1, MIN_OPS / count);
+            measure("open", n, density, () -> {
+                for (int pass = 0; pass < passes; pass++) {
+                    p.reset();
+                    for (int i = 0; i < count; i++) p.open(rows[i], cols[i]);
+                    sink += p.numberOfOpenSites();
+                }
+                return (long) passes * count;
+            }, 1, "ns/op");
+        }
+
+        int[] qr = new int[QUERIES], qc = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            qr[i] = random.nextInt(1, n + 1);
+            qc[i] = random.nextInt(1, n + 1);
+        }
+        for (double density : DENSITIES) {
+            p.reset();
+            int count = (int) (density * n * n);
+            for (int i = 0; i < count; i++) p.open(rows[i], cols[i]);
+            measure("isFull", n, density, () -> {
+                int full = 0;
+                for (int i = 0; i < QUERIES; i++) if (p.isFull(qr[i], qc[i])) full++;
+                sink += full;
+                return QUERIES;
+            }, 1, "ns/op");
+        }
+
+        // two grids, so the JIT cannot hoist the call out of the loop
+        Percolation blocked = new Percolation(n);
+        Percolation[] grids = { p, blocked };
+        measure("percolates", n, Double.NaN, () -> {
+            int yes = 0;
+            for (int i = 0; i < CALLS; i++) if (grids[i & 1].percolates()) yes++;
+            sink += yes;
+            return CALLS;
+        }, 1, "ns/op");
+
+        // enough trials per iteration to take a few milliseconds on small grids
+        int trials = Math.max(1, (1 << 20) / (n * n));
+        TrialWorker worker = new TrialWorker(n);
+        SplittableRandom trialRandom = new SplittableRandom(SEED);
+        measure("trial", n, Double.NaN, () -> {
+            for (int t = 0; t < trials; t++) sink += worker.run(trialRandom.split());
+            return trials;
+        }, 1e6, "ms/op");
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = { 64, 512, 2048 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        StdOut.printf("%-13s %4s %8s %12s    %7s  %s%n", "benchmark", "n", "density", "score", "error", "unit");
+        for (int n : sizes) benchmark(n);
+        StdOut.println("(sink " + sink + ")");
+    }
+}
@@ -0,0 +1,199 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac PercolationCurve.java
+ *  Execution:    java PercolationCurve n trials [seed threads points]
+ *  Dependencies: TrialWorker.java StdOut.java
+ *
+ *  Newman-Ziff estimate of the percolation probability P(p) of an
+ *  n-by-n grid.
+ *
+ *  Each trial opens sites in a random order until the grid percolates
+ *  and records the number k of open sites at that moment. Drawing random
+ *  sites and skipping the ones already open opens them in the order of
+ *  a uniformly random permutation, without storing one. The fraction
+ *  R(k) of trials that percolate with k open sites follows from the
+ *  histogram of these counts, and P(p) for any p is the binomial average
+ *
+ *      P(p) = sum_k C(N, k) p^k (1-p)^(N-k) R(k),   N = n*n
+ *
+ *  so one set of trials gives the whole curve instead of one set of
+ *  trials per value of p.
+ *
+ *  % java PercolationCurve 100 1000 42 4 11
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class PercolationCurve {
+    private static final int TRIALS_PER_TASK = 16; // fork-join leaf size
+    private static final double CUTOFF = 1e-15;    // ignore binomial terms below this fraction of the peak
+    private final int sites, trials;
+    private final int[] thresholds;  // thresholds[i] = open sites when trial i percolated
+    private final int[] histogram;   // histogram[k] = trials that percolated at exactly k open sites
+    private final double[] fraction; // fraction[k] = R(k), trials that percolate with k open sites
+
+    /**
+     * Runs the trials in parallel on {@code threads} workers. Results only
+     * depend on {@code seed}, not on the number of threads.
+     *
+     * @param n int
+     * @param trials int
+     * @param seed long
+     * @param threads int
+     */
+    public PercolationCurve(int n, int trials, long seed, int threads) {
+        if (n < 1 || trials < 1) throw new IllegalArgumentException("Size and Trials need to be bigger than 0");
+        if (threads < 1) throw new IllegalArgumentException("Threads need to be bigger than 0");
+        this.sites = n * n;
+        this.trials = trials;
+        thresholds = new int[trials];
+
+        ThreadLocal<TrialWorker> workers =
+                ThreadLocal.withInitial(() -> new TrialWorker(n));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new TrialTask(seed, workers, 0, trials));
+        } finally {
+            pool.shutdown();
+        }
+
+        histogram = new int[sites + 1];
+        for (int k : thresholds) histogram[k]++;
+        fraction = new double[sites + 1];
+        int percolated = 0;
+        for (int k = 0; k <= sites; k++) {
+            percolated += histogram[k];
+            fraction[k] = (double) percolated / trials;
+        }
+    }
+
+    /**
+     * Number of trials that percolated at exactly k open sites, for k in [0, n*n]
+     *
+     * @return int[]
+     */
+    public int[] histogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Fraction of trials that percolate once k sites are open
+     *
+     * @param k int
+     * @return double
+     */
+    public double fractionPercolated(int k) {
+        if (k < 0 || k > sites) throw new IllegalArgumentException("k must be in [0, " + sites + "]");
+        return fraction[k];
+    }
+
+    /**
+     * Probability that the grid percolates when each site is open with
+     * probability p. Binomial weights are built outwards from the most likely
+     * k using the ratio of consecutive terms, which avoids overflow, and the
+     * tails are dropped once they fall below CUTOFF of the peak.
+     *
+     * @param p double
+     * @return double
+     */
+    public double percolationProbability(double p) {
+        if (!(p >= 0.0 && p <= 1.0)) throw new IllegalArgumentException("p must be in [0, 1]");
+        if (p == 0.0) return fraction[0];
+        if (p == 1.0) return fraction[sites];
+
+        int peak = (int) Math.min(sites, Math.floor((sites + 1) * p));
+        double odds = p / (1.0 - p);
+        double total = 1.0, sum = fraction[peak];
+
+        double w = 1.0;
+        for (int k = peak + 1; k <= sites; k++) {
+            w *= (double) (sites - k + 1) / k * odds;
+            if (w < CUTOFF) break;
+            total += w;
+            sum += w * fraction[k];
+        }
+        w = 1.0;
+        for (int k = peak - 1; k >= 0; k--) {
+            w *= (double) (k + 1) / (sites - k) / odds;
+            if (w < CUTOFF) break;
+            total += w;
+            sum += w * fraction[k];
+        }
+        return sum / total;
+    }
+
+    /**
+     * Percolation probability at {@code points} evenly spaced values of p in [0, 1]
+     *
+     * @param points int
+     * @return double[]
+     */
+    public double[] curve(int points) {
+        if (points < 2) throw new IllegalArgumentException("Points need to be at least 2");
+        double[] curve = new double[points];
+        for (int i = 0; i < points; i++) {
+            curve[i] = percolationProbability((double) i / (points - 1));
+        }
+        return curve;
+    }
+
+    /**
+     * Mean fraction of open sites at which the trials percolated
+     *
+     * @return double
+     */
+    public double meanThreshold() {
+        double sum = 0.0;
+        for (int k : thresholds) sum += k;
+        return sum / trials / sites;
+    }
+
+    /**
+     * Runs trials [from, to); every trial writes only its own threshold slot
+     */
+    private class TrialTask extends RecursiveAction {
+        private final int from, to;
+        private final long seed;
+        private final ThreadLocal<TrialWorker> workers;
+
+        private TrialTask(long seed, ThreadLocal<TrialWorker> workers, int from, int to) {
+            this.seed = seed;
+            this.workers = workers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TRIALS_PER_TASK) {
+                TrialWorker w = workers.get();
+                for (int i = from; i < to; i++) {
+                    thresholds[i] = w.run(new SplittableRandom(TrialWorker.trialSeed(seed, i)));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TrialTask(seed, workers, from, mid), new TrialTask(seed, workers, mid, to));
+        }
+    }
+
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int t = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int points = args.length > 4 ? Integer.parseInt(args[4]) : 21;
+        PercolationCurve pc = new PercolationCurve(n, t, seed, threads);
+
+        StdOut.println("mean threshold           = " + pc.meanThreshold());
+        double[] curve = pc.curve(points);
+        for (int i = 0; i < points; i++) {
+            StdOut.printf("%.4f  %.6f%n", (double) i / (points - 1), curve[i]);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac PercolationMetrics.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Counters for the percolation hot paths: open() calls and how many of
+ *  them hit an already open site, unions that merged two clusters, find()
+ *  calls and the total number of links they followed, plus a histogram of
+ *  trial wall times in power-of-two nanosecond buckets.
+ *
+ *  A metrics object is not thread-safe. Give each thread its own and
+ *  merge() them at the end, which is what PercolationStats does.
+ *
+ ******************************************************************************/
+
+public class PercolationMetrics {
+    private static final int BUCKETS = 64; // bucket b counts times in [2^b, 2^(b+1)) ns
+    long opens, redundantOpens, unions, finds, findSteps;
+    private long trials, trialNanos, maxTrialNanos;
+    private final long[] trialHistogram = new long[BUCKETS];
+
+    /**
+     * Records the wall time of one trial
+     * @param nanos long
+     */
+    void recordTrial(long nanos) {
+        trials++;
+        trialNanos += nanos;
+        if (nanos > maxTrialNanos) maxTrialNanos = nanos;
+        trialHistogram[63 - Long.numberOfLeadingZeros(Math.max(nanos, 1))]++;
+    }
+
+    /**
+     * Adds the counts of other to this object
+     * @param other PercolationMetrics
+     */
+    public void merge(PercolationMetrics other) {
+        opens += other.opens;
+        redundantOpens += other.redundantOpens;
+        unions += other.unions;
+        finds += other.finds;
+        findSteps += other.findSteps;
+        trials += other.trials;
+        trialNanos += other.trialNanos;
+        maxTrialNanos = Math.max(maxTrialNanos, other.maxTrialNanos);
+        for (int b = 0; b < BUCKETS; b++) trialHistogram[b] += other.trialHistogram[b];
+    }
+
+    public long opens() { return opens; }
+
+    public long redundantOpens() { return redundantOpens; }
+
+    public long unions() { return unions; }
+
+    public long finds() { return finds; }
+
+    public long trials() { return trials; }
+
+    /**
+     * Average number of parent links followed by find()
+     * @return double
+     */
+    public double averageFindDepth() {
+        return finds == 0 ? 0.0 : (double) findSteps / finds;
+    }
+
+    /**
+     * Mean trial wall time in milliseconds
+     * @return double
+     */
+    public double meanTrialMillis() {
+        return trials == 0 ? 0.0 : trialNanos / 1e6 / trials;
+    }
+
+    /**
+     * Upper bound of the bucket holding the q-quantile of trial wall times,
+     * in milliseconds
+     * @param q double in [0, 1]
+     * @return double
+     */
+    public double trialMillisQuantile(double q) {
+        if (!(q >= 0.0 && q <= 1.0)) throw new IllegalArgumentException("q must be in [0, 1]");
+        if (trials == 0) return 0.0;
+        long rank = (long) Math.ceil(q * trials);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += trialHistogram[b];
+            if (seen >= rank && seen > 0) return Math.min(Math.pow(2, b + 1), maxTrialNanos) / 1e6;
+        }
+        return maxTrialNanos / 1e6;
+    }
+
+    /**
+     * Human readable summary of all counters
+     * @return String
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("open calls               = %d (%d redundant, %.1f%%)%n",
+                opens, redundantOpens, opens == 0 ? 0.0 : 100.0 * redundantOpens / opens));
+        sb.append(String.format("unions (merges)          = %d%n", unions));
+        sb.append(String.format("find calls               = %d (average depth %.3f)%n", finds, averageFindDepth()));
+        if (trials > 0) {
+            sb.append(String.format("trials                   = %d%n", trials));
+            sb.append(String.format("trial time (ms)          = mean %.3f, p50 <= %.3f, p90 <= %.3f, p99 <= %.3f, max %.3f%n",
+                    meanTrialMillis(), trialMillisQuantile(0.5), trialMillisQuantile(0.9),
+                    trialMillisQuantile(0.99), maxTrialNanos / 1e6));
+            sb.append("trial time histogram (ms)\n");
+            for (int b = 0; b < BUCKETS; b++) {
+                if (trialHistogram[b] == 0) continue;
+                sb.append(String.format("  [%10.3f, %10.3f) %d%n", Math.pow(2, b) / 1e6, Math.pow(2, b + 1) / 1e6, trialHistogram[b]));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+}
@@ -0,0 +1,226 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac PercolationRenderer.java
+ *  Execution:    none
+ *  Dependencies: Percolation.java StdDraw.java
+ *
+ *  Incremental renderer for an n-by-n Percolation, using the colours of
+ *  PercolationVisualizer: full sites light blue, open sites white and
+ *  blocked sites black, site (1, 1) in the upper left-hand corner.
+ *
+ *  Instead of redrawing all n^2 sites after every open, it only repaints
+ *  dirty sites: the ones opened since the last frame, plus open sites
+ *  that were not full yet and have become full. Open sites never become
+ *  blocked and full sites never stop being full, so nothing else can
+ *  change colour. A cluster only becomes full when a site opened since
+ *  the last frame joins it to the top, so the newly full sites are found
+ *  by flooding from the opened sites that are full, through open sites
+ *  not yet drawn full. Each site is flooded at most once, so a frame
+ *  costs O(opened sites + newly full sites), not O(open sites).
+ *
+ *  Frames go to an off-screen BufferedImage, which works with
+ *  -Djava.awt.headless=true and can be written out as PNG files. When
+ *  created for the screen, the dirty sites are drawn through StdDraw as
+ *  well. frame() is rate-limited: it does nothing if the previous frame
+ *  was less than the frame interval ago.
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdDraw;
+
+import javax.imageio.ImageIO;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class PercolationRenderer {
+    private static final int BLOCKED = 0, OPEN = 1, FULL = 2; // colour a site was last drawn with
+    private static final int[] RGB = {
+        StdDraw.BLACK.getRGB(), StdDraw.WHITE.getRGB(), StdDraw.BOOK_LIGHT_BLUE.getRGB()
+    };
+
+    private final Percolation perc;
+    private final int n;
+    private final int cell;           // pixels per site
+    private final boolean screen;     // draw on StdDraw too
+    private final BufferedImage image;
+    private final int[] pixels;       // backing array of image
+    private final byte[] drawn;       // drawn[idx] = colour site idx was last drawn with
+    private int[] opened;             // sites opened since the last frame
+    private int openedCount;
+    private int[] stack;              // flood fill work list
+    private long intervalNanos;
+    private long lastFrame;
+    private boolean first = true;
+
+    /**
+     * Creates an off-screen renderer for perc, which must be blocked
+     * @param perc Percolation
+     * @param n int grid size of perc
+     * @param cell int pixels per site
+     */
+    public PercolationRenderer(Percolation perc, int n, int cell) {
+        this(perc, n, cell, false);
+    }
+
+    /**
+     * Creates a renderer for perc, which must be blocked
+     * @param perc Percolation
+     * @param n int grid size of perc
+     * @param cell int pixels per site
+     * @param screen boolean also draw frames on StdDraw
+     */
+    public PercolationRenderer(Percolation perc, int n, int cell, boolean screen) {
+        if (perc == null) throw new IllegalArgumentException("Percolation must be not null");
+        if (n < 1) throw new IllegalArgumentException("Size needs to be bigger than 0");
+        if (cell < 1) throw new IllegalArgumentException("Cell size needs to be bigger than 0");
+        if ((long) n * cell > 32768) throw new IllegalArgumentException("Image would be larger than 32768 pixels");
+        if (perc.numberOfOpenSites() != 0) throw new IllegalArgumentException("Percolation must have no open sites");
+        this.perc = perc;
+        this.n = n;
+        this.cell = cell;
+        this.screen = screen;
+        image = new BufferedImage(n * cell, n * cell, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, RGB[BLOCKED]);
+        drawn = new byte[n * n];
+        opened = new int[16];
+        stack = new int[16];
+    }
+
+    /**
+     * Sets the shortest time between two frames; 0 renders every frame
+     * @param millis long
+     */
+    public void setFrameInterval(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Frame interval must be positive");
+        intervalNanos = millis * 1_000_000L;
+    }
+
+    /**
+     * Opens site (row, col) and marks it dirty; it is drawn with the next frame
+     * @param row int
+     * @param col int
+     */
+    public void open(int row, int col) {
+        boolean wasOpen = perc.isOpen(row, col);
+        perc.open(row, col);
+        if (wasOpen) return;
+        if (openedCount == opened.length) opened = Arrays.copyOf(opened, 2 * openedCount);
+        opened[openedCount++] = (row - 1) * n + (col - 1);
+    }
+
+    /**
+     * Draws a frame if the frame interval has passed since the previous one
+     * @return boolean was a frame drawn?
+     */
+    public boolean frame() {
+        long now = System.nanoTime();
+        if (!first && now - lastFrame < intervalNanos) return false;
+        render();
+        lastFrame = now;
+        return true;
+    }
+
+    /**
+     * Draws a frame now, whatever the frame interval
+     */
+    public void render() {
+        if (screen && first) {
+            StdDraw.clear();
+            StdDraw.setXscale(-0.05 * n, 1.05 * n);
+            StdDraw.setYscale(-0.05 * n, 1.05 * n);   // leave a border to write text
+            StdDraw.setPenColor(StdDraw.BLACK);
+            StdDraw.filledSquare(n / 2.0, n / 2.0, n / 2.0);
+        }
+        first = false;
+
+        // every cluster that became full contains a site opened since the last frame
+        for (int i = 0; i < openedCount; i++) {
+            int idx = opened[i];
+            if (drawn[idx] != FULL && perc.isFull(idx / n + 1, idx % n + 1)) flood(idx);
+        }
+        for (int i = 0; i < openedCount; i++) {
+            int idx = opened[i];
+            if (drawn[idx] == BLOCKED) paint(idx, OPEN);
+        }
+        openedCount = 0;
+
+        if (screen) {
+            // write status text over the previous one
+            StdDraw.setPenColor(StdDraw.WHITE);
+            StdDraw.filledRectangle(n / 2.0, -0.025 * n, n / 2.0, 0.025 * n);
+            StdDraw.setFont(new Font("SansSerif", Font.PLAIN, 12));
+            StdDraw.setPenColor(StdDraw.BLACK);
+            StdDraw.text(0.25 * n, -0.025 * n, perc.numberOfOpenSites() + " open sites");
+            if (perc.percolates()) StdDraw.text(0.75 * n, -0.025 * n, "percolates");
+            else                   StdDraw.text(0.75 * n, -0.025 * n, "does not percolate");
+            StdDraw.show();
+        }
+    }
+
+    /**
+     * The off-screen image, as of the last frame
+     * @return BufferedImage
+     */
+    public BufferedImage image() {
+        return image;
+    }
+
+    /**
+     * Writes the last frame to file as a PNG image
+     * @param file File
+     * @throws IOException if the file cannot be written
+     */
+    public void writePng(File file) throws IOException {
+        if (!ImageIO.write(image, "png", file)) throw new IOException("No PNG writer available");
+    }
+
+    /**
+     * Paints the full site idx and every open site connected to it that is
+     * not drawn full yet; open neighbours of a full site are full as well
+     * @param idx int
+     */
+    private void flood(int idx) {
+        int top = 0;
+        paint(idx, FULL);
+        stack[top++] = idx;
+        while (top > 0) {
+            int p = stack[--top];
+            int row = p / n, col = p % n;
+            if (row > 0)     top = visit(p - n, row - 1, col, top);
+            if (row < n - 1) top = visit(p + n, row + 1, col, top);
+            if (col > 0)     top = visit(p - 1, row, col - 1, top);
+            if (col < n - 1) top = visit(p + 1, row, col + 1, top);
+        }
+    }
+
+    private int visit(int idx, int row, int col, int top) {
+        if (drawn[idx] == FULL || !perc.isOpen(row + 1, col + 1)) return top;
+        paint(idx, FULL);
+        if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+        stack[top++] = idx;
+        return top;
+    }
+
+    private void paint(int idx, int colour) {
+        if (drawn[idx] == colour) return;
+        drawn[idx] = (byte) colour;
+        int row = idx / n, col = idx % n;
+        // leave a one pixel black border between sites once they are large enough to see it
+        int inset = cell >= 4 ? 1 : 0;
+        int rgb = RGB[colour];
+        int width = n * cell;
+        for (int y = row * cell + inset; y < (row + 1) * cell - inset; y++) {
+            int from = y * width + col * cell + inset;
+            Arrays.fill(pixels, from, from + cell - 2 * inset, rgb);
+        }
+        if (screen) {
+            StdDraw.setPenColor(colour == FULL ? StdDraw.BOOK_LIGHT_BLUE : StdDraw.WHITE);
+            StdDraw.filledSquare(col + 0.5, n - row - 0.5, 0.45);
+        }
+    }
+}
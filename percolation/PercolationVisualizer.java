@@ -2,8 +2,10 @@ package percolation;
 
 /******************************************************************************
  *  Compilation:  javac PercolationVisualizer.java
- *  Execution:    java PercolationVisualizer input.txt
- *  Dependencies: Percolation.java
+ *  Execution:    java PercolationVisualizer input.txt [delay]
+ *                java -Djava.awt.headless=true PercolationVisualizer input.txt
+ *                     -png dir [every [cell]]
+ *  Dependencies: Percolation.java PercolationRenderer.java
  *
  *  This program takes the name of a file as a command-line argument.
  *  From that file, it
@@ -16,9 +18,19 @@ package percolation;
  *  open sites (that aren't full) in white, and blocked sites in black,
  *  with with site (1, 1) in the upper left-hand corner.
  *
+ *  Drawing goes through PercolationRenderer, which only repaints the sites
+ *  that changed. With a delay of 0 ms between opens, frames are limited
+ *  to FPS per second instead of one per open.
+ *
+ *  With -png nothing is drawn on screen: a PNG frame is written to dir
+ *  every `every` opens (default n), plus one for the final state, with
+ *  `cell` pixels per site (default 1 for n > 512, else 4).
+ *
  ******************************************************************************/
 
 import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
 
 import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdDraw;
@@ -28,6 +40,9 @@ public class PercolationVisualizer {
     // delay in miliseconds (controls animation speed)
     private static final int DELAY = 100;
 
+    // frames per second when there is no delay between opens
+    private static final int FPS = 30;
+
     // draw n-by-n percolation system
     public static void draw(Percolation perc, int n) {
         StdDraw.clear();
@@ -63,25 +78,54 @@ public class PercolationVisualizer {
 
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         In in = new In(args[0]);      // input file
         int n = in.readInt();         // n-by-n percolation system
+        Percolation perc = new Percolation(n);
+
+        if (args.length > 2 && args[1].equals("-png")) {
+            File dir = new File(args[2]);
+            int every = args.length > 3 ? Integer.parseInt(args[3]) : n;
+            if (every < 1) throw new IllegalArgumentException("Opens between frames need to be bigger than 0");
+            int cell = args.length > 4 ? Integer.parseInt(args[4]) : n > 512 ? 1 : 4;
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            PercolationRenderer renderer = new PercolationRenderer(perc, n, cell);
+            int frames = 0, opens = 0;
+            while (!in.isEmpty()) {
+                int i = in.readInt();
+                int j = in.readInt();
+                renderer.open(i, j);
+                if (++opens % every == 0) {
+                    renderer.render();
+                    renderer.writePng(new File(dir, String.format("frame%06d.png", frames++)));
+                }
+            }
+            renderer.render();
+            renderer.writePng(new File(dir, String.format("frame%06d.png", frames)));
+            return;
+        }
+
+        int delay = args.length > 1 ? Integer.parseInt(args[1]) : DELAY;
 
         // turn on animation mode
         StdDraw.enableDoubleBuffering();
 
-        // repeatedly read in sites to open and draw resulting system
-        Percolation perc = new Percolation(n);
-        draw(perc, n);
-        StdDraw.show();
-        StdDraw.pause(DELAY);
+        // repeatedly read in sites to open and draw the sites that changed
+        PercolationRenderer renderer = new PercolationRenderer(perc, n, 1, true);
+        if (delay == 0) renderer.setFrameInterval(1000 / FPS);
+        renderer.render();
+        StdDraw.pause(delay);
         while (!in.isEmpty()) {
             int i = in.readInt();
             int j = in.readInt();
-            perc.open(i, j);
-            draw(perc, n);
-            StdDraw.show();
-            StdDraw.pause(DELAY);
+            renderer.open(i, j);
+            if (delay > 0) {
+                renderer.render();
+                StdDraw.pause(delay);
+            } else {
+                renderer.frame();
+            }
         }
+        renderer.render();
     }
 }
@@ -0,0 +1,76 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac RunningStats.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Online mean and variance (Welford's algorithm). Two accumulators can
+ *  be merged (Chan et al.), so each thread can keep its own and combine
+ *  them at the end. Merging in the same order always gives bit-for-bit
+ *  the same result.
+ *
+ ******************************************************************************/
+
+class RunningStats {
+    private long count;
+    private double mean;
+    private double m2; // sum of squared differences from the mean
+
+    RunningStats() { }
+
+    RunningStats(long count, double mean, double m2) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    /**
+     * Adds one observation
+     * @param x double
+     */
+    void add(double x) {
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+    }
+
+    /**
+     * Adds all observations of other to this accumulator
+     * @param other RunningStats
+     */
+    void merge(RunningStats other) {
+        if (other.count == 0) return;
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+    }
+
+    long count() {
+        return count;
+    }
+
+    double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    double m2() {
+        return m2;
+    }
+
+    /**
+     * Sample standard deviation, NaN with fewer than two observations
+     * @return double
+     */
+    double stddev() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : Double.NaN;
+    }
+}
@@ -0,0 +1,152 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac SiteUF.java
+ *  Execution:    none
+ *  Dependencies: none
+ *
+ *  Weighted quick-union over the sites of a percolation grid. Unlike
+ *  WeightedQuickUnionUF, single sites can be put back in their own
+ *  component, so a grid can be cleared in time proportional to the
+ *  number of sites that were touched.
+ *
+ *  Every root also carries a set of bit flags (e.g. "touches the top row")
+ *  which are or-ed together when two components are merged.
+ *
+ *  The trees live in a single int array: a non-negative entry is the
+ *  parent of the site, a negative entry marks a root and holds the
+ *  complement of its size, so every size up to Integer.MAX_VALUE fits.
+ *  The flags are kept apart, FLAG_BITS bits per site in a long[], and
+ *  only mean something for roots. find() uses path halving, which keeps
+ *  trees shallow near the percolation threshold where the clusters
+ *  become very large.
+ *
+ *  onFind() and onStep() are empty hooks called by find() for every call
+ *  and every parent link followed. CountingSiteUF overrides them to count;
+ *  in a plain SiteUF the JIT inlines them away.
+ *
+ ******************************************************************************/
+
+import java.util.Arrays;
+
+class SiteUF {
+    static final int MAX_SITES = Integer.MAX_VALUE; // largest size that fits in a root
+    private static final int FLAG_BITS = 2;
+    private static final int FLAG_MASK = (1 << FLAG_BITS) - 1;
+    private static final int SINGLETON = ~1; // root of size 1
+    private final int[] id; // id[i] = parent of i, or ~size if i is a root
+    private final long[] flags; // bits 2i and 2i+1 of the words: flags of site i, if it is a root
+
+    /**
+     * Creates n sites, each in its own component
+     * @param n int
+     */
+    SiteUF(int n) {
+        if (n < 0) throw new IllegalArgumentException("Number of sites must be in [0, " + MAX_SITES + "]");
+        id = new int[n];
+        Arrays.fill(id, SINGLETON);
+        flags = new long[(int) (((long) n + 31) >>> 5)];
+    }
+
+    /**
+     * Returns the root of the component containing p
+     * @param p int
+     * @return int
+     */
+    int find(int p) {
+        onFind();
+        int q;
+        while ((q = id[p]) >= 0) {
+            onStep();
+            int g = id[q];
+            if (g < 0) return q;
+            onStep();
+            id[p] = g; // path halving: point p at its grandparent
+            p = g;
+        }
+        return p;
+    }
+
+    /**
+     * Called once per find()
+     */
+    void onFind() { }
+
+    /**
+     * Called for every parent link find() follows
+     */
+    void onStep() { }
+
+    /**
+     * Merges the components containing p and q
+     * @param p int
+     * @param q int
+     * @return int root of the merged component
+     */
+    int union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return rootP;
+        return link(rootP, rootQ);
+    }
+
+    /**
+     * Merges two different components, given by their roots
+     * @param rootP int
+     * @param rootQ int
+     * @return int root of the merged component
+     */
+    int link(int rootP, int rootQ) {
+        if (~id[rootP] < ~id[rootQ]) {
+            int tmp = rootP;
+            rootP = rootQ;
+            rootQ = tmp;
+        }
+        // two disjoint components have at most MAX_SITES sites together, so this cannot overflow
+        id[rootP] = ~(~id[rootP] + ~id[rootQ]);
+        id[rootQ] = rootP;
+        int bits = flags(rootQ);
+        if (bits != 0) flags[rootP >>> 5] |= (long) bits << (rootP << 1);
+        return rootP;
+    }
+
+    /**
+     * Number of sites in the component rooted at root
+     * @param root int
+     * @return int
+     */
+    int size(int root) {
+        return ~id[root];
+    }
+
+    /**
+     * Flags of the component rooted at root
+     * @param root int
+     * @return int
+     */
+    int flags(int root) {
+        // shifts are mod 64, so this is bits 2 * (root % 32) of word root / 32
+        return (int) (flags[root >>> 5] >>> (root << 1)) & FLAG_MASK;
+    }
+
+    /**
+     * Adds flags to the component containing p
+     * @param p int
+     * @param bits int
+     * @return int flags of the component after the update
+     */
+    int mark(int p, int bits) {
+        int root = find(p);
+        flags[root >>> 5] |= (long) (bits & FLAG_MASK) << (root << 1);
+        return flags(root);
+    }
+
+    /**
+     * Puts p back in its own component. Only sites that took part in a union
+     * ever change, so resetting those restores the initial state.
+     * @param p int
+     */
+    void reset(int p) {
+        id[p] = SINGLETON;
+        flags[p >>> 5] &= ~((long) FLAG_MASK << (p << 1));
+    }
+}
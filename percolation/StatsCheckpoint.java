@@ -0,0 +1,116 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac StatsCheckpoint.java
+ *  Execution:    none
+ *  Dependencies: RunningStats.java PercolationStats.java
+ *
+ *  Progress of a seeded PercolationStats run, saved to a small binary
+ *  file so that a killed run can be resumed.
+ *
+ *  Trials [0, done) are summarised by their RunningStats (count, mean and
+ *  sum of squared differences), stored bit for bit. The random state does
+ *  not need to be saved separately: trial i always draws from a stream
+ *  seeded by trialSeed(seed, i), so (seed, done) is the whole RNG state.
+ *  The run parameters are stored too, and a checkpoint only resumes a run
+ *  with the same ones.
+ *
+ *  Layout (big-endian, 53 bytes):
+ *
+ *    int magic "PCK2" | int n | long seed | byte mode | long target |
+ *    int maxTrials | long count | double mean | double m2
+ *
+ *  where target is the number of trials for a fixed run and the bits of
+ *  the half-width for an adaptive one.
+ *
+ *  Files are written to a temporary file first and then renamed over the
+ *  old checkpoint, so a crash while saving leaves the previous one intact.
+ *  On file systems without atomic renames the file is replaced with a
+ *  plain move instead; a crash during that move can leave a truncated
+ *  checkpoint, which load() rejects with an IOException.
+ *
+ ******************************************************************************/
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+class StatsCheckpoint {
+    private static final int MAGIC = 0x50434B32; // "PCK2"
+    static final byte FIXED = 0, ADAPTIVE = 1;
+
+    final int n;
+    final long seed;
+    final byte mode;
+    final long target;
+    final int maxTrials;
+
+    StatsCheckpoint(int n, long seed, byte mode, long target, int maxTrials) {
+        this.n = n;
+        this.seed = seed;
+        this.mode = mode;
+        this.target = target;
+        this.maxTrials = maxTrials;
+    }
+
+    /**
+     * Reads the statistics saved in file, or returns empty statistics if
+     * there is no such file
+     * @param file File
+     * @return RunningStats
+     * @throws IOException if the file cannot be read, is not a checkpoint,
+     *         or was written for a run with different parameters
+     */
+    RunningStats load(File file) throws IOException {
+        if (!file.exists()) return new RunningStats();
+        try (InputStream is = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(is)) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a PercolationStats checkpoint");
+            int n = in.readInt();
+            long seed = in.readLong();
+            byte mode = in.readByte();
+            long target = in.readLong();
+            int maxTrials = in.readInt();
+            if (n != this.n || seed != this.seed || mode != this.mode
+                    || target != this.target || maxTrials != this.maxTrials)
+                throw new IOException(file + " was written for a run with different parameters");
+            long count = in.readLong();
+            double mean = in.readDouble();
+            double m2 = in.readDouble();
+            return new RunningStats(count, mean, m2);
+        }
+    }
+
+    /**
+     * Saves stats to file, replacing the previous checkpoint atomically
+     * where the file system supports it
+     * @param file File
+     * @param stats RunningStats
+     * @throws IOException if the file cannot be written
+     */
+    void save(File file, RunningStats stats) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath());
+             DataOutputStream out = new DataOutputStream(os)) {
+            out.writeInt(MAGIC);
+            out.writeInt(n);
+            out.writeLong(seed);
+            out.writeByte(mode);
+            out.writeLong(target);
+            out.writeInt(maxTrials);
+            out.writeLong(stats.count());
+            out.writeDouble(stats.count() == 0 ? 0.0 : stats.mean());
+            out.writeDouble(stats.m2());
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac TrialWorker.java
+ *  Execution:    none
+ *  Dependencies: Percolation.java PercolationMetrics.java
+ *
+ *  Per-thread state for running percolation trials: one grid, reset
+ *  between trials.
+ *
+ *  Every trial draws from its own random stream, seeded from the run seed
+ *  and the trial number, so results do not depend on which thread ran
+ *  which trial.
+ *
+ ******************************************************************************/
+
+import java.util.SplittableRandom;
+
+class TrialWorker {
+    private final int n;
+    private final Percolation grid;
+    private final PercolationMetrics metrics; // null unless monitored
+
+    TrialWorker(int n) {
+        this(n, null);
+    }
+
+    TrialWorker(int n, PercolationMetrics metrics) {
+        this.n = n;
+        this.metrics = metrics;
+        grid = new Percolation(n, metrics);
+    }
+
+    /**
+     * Number of sites in the grid
+     * @return int
+     */
+    int sites() {
+        return n * n;
+    }
+
+    /**
+     * Opens random sites of a blocked grid until it percolates
+     * @param random SplittableRandom
+     * @return int number of open sites when the grid first percolates
+     */
+    int run(SplittableRandom random) {
+        if (metrics == null) return runTrial(random);
+        long start = System.nanoTime();
+        int opened = runTrial(random);
+        metrics.recordTrial(System.nanoTime() - start);
+        return opened;
+    }
+
+    private int runTrial(SplittableRandom random) {
+        Percolation p = grid;
+        p.reset();
+        while (!p.percolates()) {
+            p.open(random.nextInt(1, n + 1), random.nextInt(1, n + 1));
+        }
+        return p.numberOfOpenSites();
+    }
+
+    /**
+     * Seed of the random stream used by trial i. The trial number is mixed
+     * (MurmurHash3 finalizer) so that neighbouring trials get unrelated streams.
+     *
+     * @param seed long
+     * @param i int
+     * @return long
+     */
+    static long trialSeed(long seed, int i) {
+        long z = seed + (i + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,136 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac UnionFindBenchmark.java
+ *  Execution:    java -Xmx2g UnionFindBenchmark [n1 n2 ...]
+ *  Dependencies: SiteUF.java WeightedQuickUnionUF.java Stopwatch.java StdOut.java
+ *
+ *  Compares SiteUF with algs4's WeightedQuickUnionUF on the percolation
+ *  workload: sites of an n-by-n grid are opened in a random order and
+ *  joined with their open neighbours until the top and bottom rows are
+ *  connected. Both structures replay the same opening order.
+ *
+ *  For each n, WARMUP untimed rounds run both structures so the JIT has
+ *  compiled them before timing starts, and the timed rounds alternate
+ *  which one goes first, so neither always runs on a colder cache or a
+ *  fuller heap than the other.
+ *
+ *  % java -Xmx2g UnionFindBenchmark 1000 2000
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.Stopwatch;
+import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+
+import java.util.SplittableRandom;
+
+public class UnionFindBenchmark {
+    private static final int WARMUP = 2;
+    private static final int RUNS = 4;
+    private static final long SEED = 20170201L;
+
+    /**
+     * Opens sites in the given order using WeightedQuickUnionUF with virtual
+     * top (n*n) and bottom (n*n+1) sites
+     *
+     * @return int number of sites opened when the grid percolates
+     */
+    private static int runWeighted(int n, int[] order) {
+        int sites = n * n;
+        boolean[] open = new boolean[sites];
+        WeightedQuickUnionUF uf = new WeightedQuickUnionUF(sites + 2);
+        int opened = 0;
+        while (uf.find(sites) != uf.find(sites + 1)) {
+            int idx = order[opened++];
+            open[idx] = true;
+            int row = idx / n, col = idx % n;
+            if (row > 0 && open[idx - n]) uf.union(idx, idx - n);
+            if (row < n - 1 && open[idx + n]) uf.union(idx, idx + n);
+            if (col > 0 && open[idx - 1]) uf.union(idx, idx - 1);
+            if (col < n - 1 && open[idx + 1]) uf.union(idx, idx + 1);
+            if (row == 0) uf.union(idx, sites);
+            if (row == n - 1) uf.union(idx, sites + 1);
+        }
+        return opened;
+    }
+
+    /**
+     * Opens sites in the given order using SiteUF with top and bottom flags
+     *
+     * @return int number of sites opened when the grid percolates
+     */
+    private static int runSite(int n, int[] order) {
+        final int top = 1, bottom = 2;
+        int sites = n * n;
+        boolean[] open = new boolean[sites];
+        SiteUF uf = new SiteUF(sites);
+        int opened = 0;
+        int flags = 0;
+        while (flags != (top | bottom)) {
+            int idx = order[opened++];
+            open[idx] = true;
+            int row = idx / n, col = idx % n;
+            int root = idx;
+            if (row > 0 && open[idx - n]) root = uf.union(idx, idx - n);
+            if (row < n - 1 && open[idx + n]) root = uf.union(idx, idx + n);
+            if (col > 0 && open[idx - 1]) root = uf.union(idx, idx - 1);
+            if (col < n - 1 && open[idx + 1]) root = uf.union(idx, idx + 1);
+            flags = uf.flags(root);
+            if (row == 0) flags = uf.mark(root, top);
+            if (row == n - 1) flags = uf.mark(root, bottom);
+        }
+        return opened;
+    }
+
+    private static int[] randomOrder(int sites, SplittableRandom random) {
+        int[] order = new int[sites];
+        for (int i = 0; i < sites; i++) order[i] = i;
+        for (int i = sites - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = { 1000, 2000, 4000, 8000 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        StdOut.printf("%8s %18s %18s %8s%n", "n", "WeightedQU (s)", "SiteUF (s)", "speedup");
+        for (int n : sizes) {
+            double weighted = 0.0, site = 0.0;
+            for (int r = -WARMUP; r < RUNS; r++) {
+                int[] order = randomOrder(n * n, random);
+                int expected, actual;
+                double tw, ts;
+                if ((r & 1) == 0) {
+                    Stopwatch sw = new Stopwatch();
+                    expected = runWeighted(n, order);
+                    tw = sw.elapsedTime();
+                    sw = new Stopwatch();
+                    actual = runSite(n, order);
+                    ts = sw.elapsedTime();
+                } else {
+                    Stopwatch sw = new Stopwatch();
+                    actual = runSite(n, order);
+                    ts = sw.elapsedTime();
+                    sw = new Stopwatch();
+                    expected = runWeighted(n, order);
+                    tw = sw.elapsedTime();
+                }
+                if (expected != actual) throw new IllegalStateException("Union-find implementations disagree for n = " + n);
+                if (r >= 0) {
+                    weighted += tw;
+                    site += ts;
+                }
+            }
+            StdOut.printf("%8d %18.3f %18.3f %7.2fx%n", n, weighted / RUNS, site / RUNS, weighted / site);
+        }
+    }
+}
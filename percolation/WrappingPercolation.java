@@ -0,0 +1,285 @@
+package percolation;
+/******************************************************************************
+ *  Compilation:  javac WrappingPercolation.java
+ *  Execution:    java WrappingPercolation [L trials seed]
+ *  Dependencies: Lattice.java LatticePercolation.java StdOut.java
+ *
+ *  Site or bond percolation on a periodic Lattice, detecting clusters
+ *  that wrap around the torus (Newman and Ziff, 2001). With no edges there
+ *  are no boundary effects, so wrapping gives good threshold estimates on
+ *  much smaller systems than top-to-bottom spanning.
+ *
+ *  Each site stores its displacement to its parent in the union-find, and
+ *  find() adds these up to get the displacement from a site to its root.
+ *  When a new bond joins two sites already in the same cluster, the two
+ *  paths to the root must agree; if they differ along an axis, the cluster
+ *  has just wrapped around that axis.
+ *
+ *  This needs one displacement per site and axis, so it keeps its own
+ *  union-find (parents, sizes, offsets) instead of the packed SiteUF.
+ *
+ *  % java WrappingPercolation 64 200 42
+ *
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+public class WrappingPercolation {
+    private final Lattice lattice;
+    private final LatticePercolation.Type type;
+    private final int dim;            // number of axes
+    private final int forward;        // forward directions per site
+    private final int elements;       // sites or bond slots
+    private final long[] open;        // bit e set if element e is open
+    private final int[] parent;       // parent[i] = parent of site i
+    private final int[] size;         // size[i] = sites in tree rooted at i
+    private final int[] offset;       // offset[i * dim + a] = displacement from i to parent[i] along axis a
+    private final int[] da, db, left; // scratch: displacements to the root
+    private final boolean[] wraps;    // wraps[a] = some cluster wraps around axis a
+    private int openElements;
+
+    /**
+     * Creates a system on a periodic lattice with every site (SITE) or bond
+     * (BOND) blocked
+     * @param lattice Lattice
+     * @param type LatticePercolation.Type
+     */
+    public WrappingPercolation(Lattice lattice, LatticePercolation.Type type) {
+        if (lattice == null || type == null) throw new IllegalArgumentException("Lattice and type must be not null");
+        if (!lattice.isPeriodic()) throw new IllegalArgumentException("Lattice must be periodic");
+        long slots = type == LatticePercolation.Type.SITE ? lattice.sites() : lattice.bondSlots();
+        if (slots > Integer.MAX_VALUE || (long) lattice.sites() * lattice.dimension() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Lattice is too large");
+        this.lattice = lattice;
+        this.type = type;
+        this.dim = lattice.dimension();
+        this.forward = lattice.forwardDegree();
+        this.elements = (int) slots;
+        int sites = lattice.sites();
+        open = new long[(int) ((slots + 63) >>> 6)];
+        parent = new int[sites];
+        size = new int[sites];
+        offset = new int[sites * dim];
+        for (int i = 0; i < sites; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+        da = new int[dim];
+        db = new int[dim];
+        left = new int[dim];
+        wraps = new boolean[dim];
+    }
+
+    /**
+     * Number of elements that can be opened: sites in SITE mode, bond slots
+     * in BOND mode
+     * @return int
+     */
+    public int elements() {
+        return elements;
+    }
+
+    /**
+     * Does element e exist? Every site does; a bond slot may be empty, e.g.
+     * for half the sites of a honeycomb.
+     * @param e int
+     * @return boolean
+     */
+    public boolean exists(int e) {
+        checkElement(e);
+        return type == LatticePercolation.Type.SITE || lattice.neighbor(e / forward, e % forward) >= 0;
+    }
+
+    /**
+     * Opens element e (a site or a bond slot) if it is not already open
+     * @param e int
+     */
+    public void open(int e) {
+        checkElement(e);
+        long bit = 1L << e;
+        if ((open[e >>> 6] & bit) != 0) return;
+
+        if (type == LatticePercolation.Type.SITE) {
+            open[e >>> 6] |= bit;
+            for (int k = 0; k < lattice.degree(); k++) {
+                int nb = lattice.neighbor(e, k);
+                if (nb >= 0 && isSet(nb)) join(e, nb, k);
+            }
+        } else {
+            int a = e / forward;
+            int b = lattice.neighbor(a, e % forward);
+            if (b < 0) throw new IllegalArgumentException("Bond slot " + e + " is empty");
+            open[e >>> 6] |= bit;
+            join(a, b, e % forward);
+        }
+        openElements++;
+    }
+
+    /**
+     * Is element e open?
+     * @param e int
+     * @return boolean
+     */
+    public boolean isOpen(int e) {
+        checkElement(e);
+        return isSet(e);
+    }
+
+    /**
+     * Does some cluster wrap around the given axis?
+     * @param axis int in [0, dimension)
+     * @return boolean
+     */
+    public boolean wraps(int axis) {
+        if (axis < 0 || axis >= dim) throw new IllegalArgumentException("axis must be in [0, " + (dim - 1) + "]");
+        return wraps[axis];
+    }
+
+    /**
+     * Does some cluster wrap around at least one axis?
+     * @return boolean
+     */
+    public boolean wrapsAny() {
+        for (boolean w : wraps) if (w) return true;
+        return false;
+    }
+
+    /**
+     * Do clusters wrap around every axis?
+     * @return boolean
+     */
+    public boolean wrapsAll() {
+        for (boolean w : wraps) if (!w) return false;
+        return true;
+    }
+
+    /**
+     * Number of open elements
+     * @return int
+     */
+    public int numberOfOpenElements() {
+        return openElements;
+    }
+
+    /**
+     * Blocks every element again, touching only sites of open elements
+     */
+    public void reset() {
+        for (int w = 0; w < open.length && openElements > 0; w++) {
+            long bits = open[w];
+            if (bits == 0) continue;
+            open[w] = 0;
+            openElements -= Long.bitCount(bits);
+            for (; bits != 0; bits &= bits - 1) {
+                int e = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (type == LatticePercolation.Type.SITE) {
+                    resetSite(e);
+                } else {
+                    resetSite(e / forward);
+                    resetSite(lattice.neighbor(e / forward, e % forward));
+                }
+            }
+        }
+        openElements = 0;
+        for (int a = 0; a < dim; a++) wraps[a] = false;
+    }
+
+    /**
+     * Joins site a with its neighbour b, one step in direction from a
+     */
+    private void join(int a, int b, int direction) {
+        int ra = find(a, da);
+        int rb = find(b, db);
+        // displacement from rb to ra: (a -> ra) - (a -> b) - (b -> rb)
+        for (int k = 0; k < dim; k++) db[k] = da[k] - lattice.offset(direction, k) - db[k];
+        if (ra == rb) {
+            // both paths lead to the same root: any mismatch is a loop around the torus
+            for (int k = 0; k < dim; k++) if (db[k] != 0) wraps[k] = true;
+            return;
+        }
+        if (size[ra] < size[rb]) {
+            parent[ra] = rb;
+            size[rb] += size[ra];
+            for (int k = 0; k < dim; k++) offset[ra * dim + k] = -db[k];
+        } else {
+            parent[rb] = ra;
+            size[ra] += size[rb];
+            for (int k = 0; k < dim; k++) offset[rb * dim + k] = db[k];
+        }
+    }
+
+    /**
+     * Returns the root of p and stores the displacement from p to the root
+     * in disp. Compresses the path, keeping each offset relative to the root.
+     */
+    private int find(int p, int[] disp) {
+        for (int k = 0; k < dim; k++) disp[k] = 0;
+        int root = p;
+        while (parent[root] != root) {
+            for (int k = 0; k < dim; k++) disp[k] += offset[root * dim + k];
+            root = parent[root];
+        }
+        // second pass: point every site at the root; what is left of disp is its new offset
+        for (int k = 0; k < dim; k++) left[k] = disp[k];
+        int q = p;
+        while (q != root) {
+            int next = parent[q];
+            for (int k = 0; k < dim; k++) {
+                int step = offset[q * dim + k];
+                offset[q * dim + k] = left[k];
+                left[k] -= step;
+            }
+            parent[q] = root;
+            q = next;
+        }
+        return root;
+    }
+
+    private void resetSite(int site) {
+        parent[site] = site;
+        size[site] = 1;
+        for (int k = 0; k < dim; k++) offset[site * dim + k] = 0;
+    }
+
+    private boolean isSet(int e) {
+        return (open[e >>> 6] & (1L << e)) != 0;
+    }
+
+    private void checkElement(int e) {
+        if (e < 0 || e >= elements)
+            throw new IllegalArgumentException("element must be in [0, " + (elements - 1) + "]");
+    }
+
+    public static void main(String[] args) {
+        int l = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        SplittableRandom random = args.length > 2 ? new SplittableRandom(Long.parseLong(args[2])) : new SplittableRandom();
+
+        for (LatticePercolation.Type type : LatticePercolation.Type.values()) {
+            WrappingPercolation p = new WrappingPercolation(Lattice.square(l, l, true), type);
+            int[] order = new int[p.elements()];
+            for (int e = 0; e < order.length; e++) order[e] = e;
+            double any = 0.0, all = 0.0;
+            for (int t = 0; t < trials; t++) {
+                p.reset();
+                boolean anySeen = false;
+                for (int k = 0; !p.wrapsAll(); k++) {
+                    int j = random.nextInt(k, order.length);
+                    int e = order[j];
+                    order[j] = order[k];
+                    order[k] = e;
+                    p.open(e);
+                    if (!anySeen && p.wrapsAny()) {
+                        anySeen = true;
+                        any += (double) p.numberOfOpenElements() / order.length;
+                    }
+                }
+                all += (double) p.numberOfOpenElements() / order.length;
+            }
+            StdOut.printf("square %dx%d torus %-5s  wraps one axis at %.4f, both at %.4f%n",
+                    l, l, type, any / trials, all / trials);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package queues;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe RandomizedQueue. Items are spread over independently locked
+ * stripes, and most operations only lock and read the one stripe they
+ * work on.
+ *
+ * enqueue() adds to a random stripe, moving on to the next one if its
+ * lock is busy. dequeue() and sample() first try a few times to pick a
+ * random stripe s and a random slot r below bound, a power of two at
+ * least as large as every stripe; r is a hit if it is below size(s), and
+ * then they wait for the lock of s. Every item has probability 1 /
+ * (stripes * bound) per try, so a hit is uniform over the items, and a
+ * try reads the size of one stripe only. After TRIES misses (a queue that is small
+ * or lopsided) they fall back to reading every stripe size and picking
+ * a stripe with probability proportional to its size, which also lowers
+ * bound to the largest stripe.
+ *
+ * Draws are exactly uniform while no other thread changes the queue
+ * during the draw; concurrent sample() calls do not change it. Under concurrent updates the error of a draw is
+ * bounded by the changes made in that short window, and every draw is
+ * still uniform within the stripe it locks.
+ *
+ * size() and isEmpty() add up the stripe sizes without locking, so they
+ * may be out of date when they return. Iterators walk a snapshot of the
+ * queue in random order.
+ */
+public class ConcurrentRandomizedQueue<Item> implements Iterable<Item> {
+    private static final int TRIES = 4; // random slot tries before the size-weighted scan
+    private final Stripe<Item>[] stripes;
+    private final AtomicInteger bound = new AtomicInteger(2); // power of two >= every stripe size
+
+    private static final class Stripe<Item> extends ReentrantLock {
+        private Item[] items = (Item[]) new Object[2];
+        private volatile int size; // written under the lock, read without it
+
+        private void add(Item item) {
+            if (size == items.length) items = Arrays.copyOf(items, 2 * size);
+            items[size] = item;
+            size = size + 1;
+        }
+
+        private Item remove(int idx) {
+            Item item = items[idx];
+            int last = size - 1;
+            items[idx] = items[last];
+            items[last] = null;
+            size = last;
+            if (last > 0 && last == items.length / 4) items = Arrays.copyOf(items, 2 * last);
+            return item;
+        }
+    }
+
+    public ConcurrentRandomizedQueue() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes int number of independently locked sub-queues
+     */
+    public ConcurrentRandomizedQueue(int stripes) {
+        if (stripes < 1) throw new IllegalArgumentException("Stripes need to be bigger than 0");
+        this.stripes = (Stripe<Item>[]) new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) this.stripes[i] = new Stripe<>();
+    }
+
+    public boolean isEmpty() {
+        for (Stripe<Item> s : stripes) if (s.size > 0) return false;
+        return true;
+    }
+
+    public int size() {
+        int n = 0;
+        for (Stripe<Item> s : stripes) n += s.size;
+        return n;
+    }
+
+    public void enqueue(Item item) {
+        if (item == null) throw new IllegalArgumentException("Item must be not null");
+        int start = ThreadLocalRandom.current().nextInt(stripes.length);
+        // take the first free stripe from a random start, or wait for that one if all are busy
+        Stripe<Item> s = null;
+        for (int k = 0; k < stripes.length && s == null; k++) {
+            Stripe<Item> t = stripes[(start + k) % stripes.length];
+            if (t.tryLock()) s = t;
+        }
+        if (s == null) {
+            s = stripes[start];
+            s.lock();
+        }
+        int size;
+        try {
+            s.add(item);
+            size = s.size;
+        } finally {
+            s.unlock();
+        }
+        if (size > bound.get()) raise(size);
+    }
+
+    public Item dequeue() {
+        return take(true);
+    }
+
+    public Item sample() {
+        return take(false);
+    }
+
+    private Item take(boolean remove) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int m = bound.get();
+        for (int t = 0; t < TRIES; t++) {
+            // one draw for both: m is a power of two, so the low bits are the slot
+            long r = random.nextLong((long) stripes.length * m);
+            Stripe<Item> s = stripes[(int) (r >>> Integer.numberOfTrailingZeros(m))];
+            int idx = (int) r & (m - 1);
+            int size = s.size;
+            if (size > m) {
+                // an enqueue has not raised the bound yet
+                raise(size);
+                m = bound.get();
+                continue;
+            }
+            if (idx >= size) continue;
+            // a busy lock is waited for, not skipped, so busy stripes are not drawn less often
+            s.lock();
+            try {
+                // only a concurrent dequeue can have shrunk the stripe meanwhile
+                if (idx < s.size) return remove ? s.remove(idx) : s.items[idx];
+            } finally {
+                s.unlock();
+            }
+        }
+
+        while (true) {
+            Stripe<Item> s = pick(random);
+            if (s == null) throw new NoSuchElementException("Queue is empty");
+            s.lock();
+            try {
+                // another thread may have emptied it since the sizes were read
+                if (s.size == 0) continue;
+                int idx = random.nextInt(s.size);
+                return remove ? s.remove(idx) : s.items[idx];
+            } finally {
+                s.unlock();
+            }
+        }
+    }
+
+    /**
+     * A stripe chosen with probability proportional to its size, or null
+     * if the queue looks empty
+     */
+    private Stripe<Item> pick(ThreadLocalRandom random) {
+        while (true) {
+            int m = bound.get();
+            int total = 0, largest = 0;
+            for (Stripe<Item> s : stripes) {
+                int size = s.size;
+                total += size;
+                largest = Math.max(largest, size);
+            }
+            if (total == 0) return null;
+            // shrink the bound after dequeues; a stripe that outgrows it meanwhile is caught in take()
+            int fit = Math.max(2, Integer.highestOneBit(largest - 1) << 1);
+            if (fit < m) bound.compareAndSet(m, fit);
+            int r = random.nextInt(total);
+            for (Stripe<Item> s : stripes) {
+                r -= s.size;
+                if (r < 0) return s;
+            }
+            // stripes shrank between the two passes: draw again
+        }
+    }
+
+    // raises bound to a power of two >= size
+    private void raise(int size) {
+        int target = Integer.highestOneBit(size - 1) << 1;
+        int m;
+        while ((m = bound.get()) < target && !bound.compareAndSet(m, target)) { }
+    }
+
+    /**
+     * Iterates in random order over the items in the queue when the
+     * iterator is created, taking one stripe lock at a time
+     */
+    @Override
+    public Iterator<Item> iterator() {
+        Object[] snapshot = new Object[0];
+        int n = 0;
+        for (Stripe<Item> s : stripes) {
+            s.lock();
+            try {
+                if (n + s.size > snapshot.length) snapshot = Arrays.copyOf(snapshot, Math.max(2 * snapshot.length, n + s.size));
+                System.arraycopy(s.items, 0, snapshot, n, s.size);
+                n += s.size;
+            } finally {
+                s.unlock();
+            }
+        }
+        return new SnapshotIterator(snapshot, n);
+    }
+
+    private class SnapshotIterator implements Iterator<Item> {
+        private final Object[] items;
+        private final ShuffledIndices order;
+
+        private SnapshotIterator(Object[] items, int n) {
+            this.items = items;
+            order = new ShuffledIndices(n, null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return order.hasNext();
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) throw new NoSuchElementException("Stack Overflow");
+            return (Item) items[order.next()];
+        }
+
+        @Override
+        public void remove() { throw new UnsupportedOperationException("Remove method not supported"); }
+    }
+
+    public static void main(String args[]) {
+        ConcurrentRandomizedQueue<Integer> rq = new ConcurrentRandomizedQueue<>();
+        for (int i = 1; i <= 6; i++) rq.enqueue(i);
+        System.out.println(rq.dequeue());
+        for (Integer nb : rq) {
+            System.out.println(nb);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package queues;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checks and benchmarks ConcurrentRandomizedQueue.
+ *
+ * Stress: producers enqueue disjoint ranges of items while consumers
+ * dequeue; every item must come out exactly once.
+ *
+ * Uniformity: sample() and dequeue() on a queue of K items spread over
+ * the stripes unevenly, compared with the uniform distribution by a
+ * chi-square statistic (K - 1 degrees of freedom, so values near K - 1
+ * are expected and values above about K - 1 + 3 sqrt(2 (K - 1)) are not).
+ * sample() is checked once from one thread and once from several threads
+ * at the same time, which must not favour stripes that are less busy.
+ *
+ * Throughput: threads doing a 50/50 mix of enqueue and dequeue, against a
+ * RandomizedQueue behind a single lock.
+ *
+ * On a single core (OpenJDK 17) the threads never run at the same time,
+ * so there is no contention for striping to remove and the single lock
+ * is faster. What striping saves, threads on different cores not sharing
+ * a lock or reading the sizes of other stripes, cannot show up here; the
+ * numbers only give the extra cost per operation of the random slot tries:
+ *
+ * % java queues.ConcurrentRandomizedQueueBenchmark 1 2 4
+ * stress  1 producers,  1 consumers: 1000000 items taken once each
+ * stress  2 producers,  2 consumers: 2000000 items taken once each
+ * stress  4 producers,  4 consumers: 4000000 items taken once each
+ * sample()  chi2 = 48.8 (63 dof)
+ * sample()  chi2 = 84.3 (63 dof), 4 threads
+ * dequeue() chi2 = 65.7 (63 dof)
+ *  threads      striped (M/s)       locked (M/s)
+ *        1              13.23              22.32
+ *        2              13.46              48.72
+ *        4              14.70              24.89
+ */
+public class ConcurrentRandomizedQueueBenchmark {
+    private static final int ITEMS = 1000000;   // per producer in the stress test
+    private static final int K = 64;            // items in the uniformity test
+    private static final int DRAWS = 6400000;
+    private static final int OPS = 2000000;     // per thread in the throughput test
+
+    /**
+     * enqueue and dequeue, so both queues run the same workload
+     */
+    private interface Bag {
+        void enqueue(Integer item);
+        Integer dequeue();
+    }
+
+    private static void stress(int threads) throws InterruptedException {
+        ConcurrentRandomizedQueue<Integer> q = new ConcurrentRandomizedQueue<>();
+        int total = threads * ITEMS;
+        AtomicIntegerArray taken = new AtomicIntegerArray(total);
+        AtomicInteger remaining = new AtomicInteger(total);
+        Thread[] workers = new Thread[2 * threads];
+        for (int t = 0; t < threads; t++) {
+            final int from = t * ITEMS;
+            workers[t] = new Thread(() -> {
+                for (int i = from; i < from + ITEMS; i++) q.enqueue(i);
+            });
+            workers[threads + t] = new Thread(() -> {
+                while (remaining.get() > 0) {
+                    try {
+                        taken.incrementAndGet(q.dequeue());
+                        remaining.decrementAndGet();
+                    } catch (NoSuchElementException e) {
+                        Thread.yield(); // producers are behind
+                    }
+                }
+            });
+        }
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        for (int i = 0; i < total; i++) {
+            if (taken.get(i) != 1) throw new IllegalStateException("Item " + i + " taken " + taken.get(i) + " times");
+        }
+        if (!q.isEmpty()) throw new IllegalStateException("Queue not empty");
+        StdOut.printf("stress %2d producers, %2d consumers: %d items taken once each%n", threads, threads, total);
+    }
+
+    private static void uniformity(int threads) throws InterruptedException {
+        ConcurrentRandomizedQueue<Integer> q = new ConcurrentRandomizedQueue<>(8);
+        for (int i = 0; i < K; i++) q.enqueue(i);
+        long[] counts = new long[K];
+        for (int d = 0; d < DRAWS; d++) counts[q.sample()]++;
+        StdOut.printf("sample()  chi2 = %.1f (%d dof)%n", chiSquare(counts, DRAWS), K - 1);
+
+        // the same draws split over concurrent threads
+        long[][] perThread = new long[threads][K];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final long[] mine = perThread[t];
+            workers[t] = new Thread(() -> {
+                for (int d = 0; d < DRAWS / threads; d++) mine[q.sample()]++;
+            });
+        }
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        counts = new long[K];
+        for (long[] c : perThread) for (int i = 0; i < K; i++) counts[i] += c[i];
+        StdOut.printf("sample()  chi2 = %.1f (%d dof), %d threads%n", chiSquare(counts, DRAWS / threads * threads), K - 1, threads);
+
+        // dequeue the whole queue and record which item came out first
+        counts = new long[K];
+        int rounds = DRAWS / K;
+        for (int r = 0; r < rounds; r++) {
+            counts[q.dequeue()]++;
+            for (int i = 1; i < K; i++) q.dequeue();
+            for (int i = 0; i < K; i++) q.enqueue(i);
+        }
+        StdOut.printf("dequeue() chi2 = %.1f (%d dof)%n", chiSquare(counts, rounds), K - 1);
+    }
+
+    private static double chiSquare(long[] counts, long draws) {
+        double expected = (double) draws / counts.length, chi = 0.0;
+        for (long c : counts) chi += (c - expected) * (c - expected) / expected;
+        return chi;
+    }
+
+    private static double throughput(Bag bag, int threads) throws InterruptedException {
+        for (int i = 0; i < 1024; i++) bag.enqueue(i);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < OPS; i++) {
+                    if ((i & 1) == 0) bag.enqueue(i);
+                    else bag.dequeue();
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        return (double) threads * OPS / (System.nanoTime() - begin) * 1e3;
+    }
+
+    private static Bag striped() {
+        ConcurrentRandomizedQueue<Integer> q = new ConcurrentRandomizedQueue<>();
+        return new Bag() {
+            public void enqueue(Integer item) { q.enqueue(item); }
+            public Integer dequeue() { return q.dequeue(); }
+        };
+    }
+
+    private static Bag locked() {
+        RandomizedQueue<Integer> q = new RandomizedQueue<>();
+        return new Bag() {
+            public synchronized void enqueue(Integer item) { q.enqueue(item); }
+            public synchronized Integer dequeue() { return q.dequeue(); }
+        };
+    }
+
+    public static void main(String args[]) throws InterruptedException {
+        int[] threads = { 1, 2, 4, 8 };
+        if (args.length > 0) {
+            threads = new int[args.length];
+            for (int i = 0; i < args.length; i++) threads[i] = Integer.parseInt(args[i]);
+        }
+
+        for (int t : threads) stress(t);
+        uniformity(Math.max(2, threads[threads.length - 1]));
+
+        StdOut.printf("%8s %18s %18s%n", "threads", "striped (M/s)", "locked (M/s)");
+        for (int t : threads) {
+            throughput(striped(), t); // warmup
+            throughput(locked(), t);
+            StdOut.printf("%8d %18.2f %18.2f%n", t, throughput(striped(), t), throughput(locked(), t));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package queues;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares the linked Deque with ResizingArrayDeque. For n items each run
+ * fills the deque from both ends, iterates over it and empties it from
+ * both ends. Heap use is measured after a separate fill. Before timing,
+ * a random mix of operations is replayed on both deques to check that
+ * they return the same items.
+ *
+ * % java -Xmx4g queues.DequeBenchmark 1000000 10000000
+ *          n deque     fill (ms)  iter (ms) drain (ms) bytes/item
+ *    1000000 linked         49.6       17.9        8.2       32.0
+ *    1000000 array           7.0        8.2        5.7        4.2
+ *   10000000 linked        551.9      167.7       92.0       32.0
+ *   10000000 array          86.3       46.6       50.8        2.7
+ */
+public class DequeBenchmark {
+    private static final int RUNS = 5; // the first one is warmup and not reported
+    private static final long SEED = 20170201L;
+
+    private static long sink;
+
+    // linked and array deques share no interface, so each workload is written twice
+    private static double[] runLinked(int n, Integer[] values) {
+        double[] t = new double[3];
+        long start = System.nanoTime();
+        Deque<Integer> d = new Deque<>();
+        for (int i = 0; i < n; i++) {
+            if ((i & 1) == 0) d.addLast(values[i]);
+            else d.addFirst(values[i]);
+        }
+        t[0] = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        long sum = 0;
+        for (Integer v : d) sum += v;
+        t[1] = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++) sum += (i & 1) == 0 ? d.removeFirst() : d.removeLast();
+        t[2] = (System.nanoTime() - start) / 1e6;
+        sink += sum;
+        return t;
+    }
+
+    private static double[] runArray(int n, Integer[] values) {
+        double[] t = new double[3];
+        long start = System.nanoTime();
+        ResizingArrayDeque<Integer> d = new ResizingArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            if ((i & 1) == 0) d.addLast(values[i]);
+            else d.addFirst(values[i]);
+        }
+        t[0] = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        long sum = 0;
+        for (Integer v : d) sum += v;
+        t[1] = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++) sum += (i & 1) == 0 ? d.removeFirst() : d.removeLast();
+        t[2] = (System.nanoTime() - start) / 1e6;
+        sink += sum;
+        return t;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // bytes per item held by each deque, not counting the Integers themselves
+    private static double[] footprint(int n, Integer[] values) {
+        long base = usedHeap();
+        Deque<Integer> linked = new Deque<>();
+        for (int i = 0; i < n; i++) linked.addLast(values[i]);
+        double linkedBytes = (double) (usedHeap() - base) / n;
+        sink += linked.size();
+        linked = null;
+
+        base = usedHeap();
+        ResizingArrayDeque<Integer> array = new ResizingArrayDeque<>();
+        for (int i = 0; i < n; i++) array.addLast(values[i]);
+        double arrayBytes = (double) (usedHeap() - base) / n;
+        sink += array.size();
+        return new double[] { linkedBytes, arrayBytes };
+    }
+
+    private static void crossCheck(int ops, SplittableRandom random) {
+        Deque<Integer> linked = new Deque<>();
+        ResizingArrayDeque<Integer> array = new ResizingArrayDeque<>();
+        for (int i = 0; i < ops; i++) {
+            int op = random.nextInt(linked.isEmpty() ? 2 : 4);
+            Integer a, b;
+            switch (op) {
+                case 0: linked.addFirst(i); array.addFirst(i); continue;
+                case 1: linked.addLast(i); array.addLast(i); continue;
+                case 2: a = linked.removeFirst(); b = array.removeFirst(); break;
+                default: a = linked.removeLast(); b = array.removeLast(); break;
+            }
+            if (!a.equals(b) || linked.size() != array.size())
+                throw new IllegalStateException("Deques disagree after " + i + " operations");
+        }
+    }
+
+    public static void main(String args[]) {
+        int[] sizes = { 1000000, 10000000 };
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        SplittableRandom random = new SplittableRandom(SEED);
+        crossCheck(1000000, random);
+
+        StdOut.printf("%10s %-8s %10s %10s %10s %10s%n", "n", "deque", "fill (ms)", "iter (ms)", "drain (ms)", "bytes/item");
+        for (int n : sizes) {
+            Integer[] values = new Integer[n];
+            for (int i = 0; i < n; i++) values[i] = random.nextInt();
+            double[] linked = new double[3], array = new double[3];
+            for (int r = 0; r < RUNS; r++) {
+                double[] l = runLinked(n, values);
+                double[] a = runArray(n, values);
+                for (int k = 0; r > 0 && k < 3; k++) {
+                    linked[k] += l[k] / (RUNS - 1);
+                    array[k] += a[k] / (RUNS - 1);
+                }
+            }
+            double[] bytes = footprint(n, values);
+            StdOut.printf("%10d %-8s %10.1f %10.1f %10.1f %10.1f%n", n, "linked", linked[0], linked[1], linked[2], bytes[0]);
+            StdOut.printf("%10d %-8s %10.1f %10.1f %10.1f %10.1f%n", n, "array", array[0], array[1], array[2], bytes[1]);
+        }
+        StdOut.println("(sink " + sink + ")");
+    }
+}
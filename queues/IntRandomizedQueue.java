@@ -0,0 +1,116 @@
+package queues;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RandomizedQueue for int values, stored in an int[] so nothing is boxed.
+ * Random draws and iteration work as in RandomizedQueue.
+ */
+public class IntRandomizedQueue implements Iterable<Integer> {
+    private int size;
+    private int[] rq;
+    private final SplittableRandom random; // null to use ThreadLocalRandom
+    private int modCount;
+
+    public IntRandomizedQueue() {
+        this(null);
+    }
+
+    /**
+     * @param random SplittableRandom to draw from, or null to use ThreadLocalRandom
+     */
+    public IntRandomizedQueue(SplittableRandom random) {
+        size = 0;
+        rq = new int[2];
+        this.random = random;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void enqueue(int item) {
+        if (size == rq.length) resize(2 * size);
+        rq[size++] = item;
+        modCount++;
+    }
+
+    public int dequeue() {
+        if (isEmpty()) throw new NoSuchElementException("Stack overflow");
+        int idx = uniform(size);
+        int item = rq[idx];
+        rq[idx] = rq[--size];
+        modCount++;
+        if (size > 0 && size == rq.length/4) resize(2 * size);
+
+        return item;
+    }
+
+    public int sample() {
+        if (isEmpty()) throw new NoSuchElementException("Stack overflow");
+        return rq[uniform(size)];
+    }
+
+    private int uniform(int n) {
+        return random == null ? ThreadLocalRandom.current().nextInt(n) : random.nextInt(n);
+    }
+
+    private void resize(int newSize) {
+        rq = Arrays.copyOf(rq, newSize);
+    }
+
+    /**
+     * Iterates in random order; nextInt() does not box
+     */
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new RandomizedQueueIterator();
+    }
+
+    private class RandomizedQueueIterator implements PrimitiveIterator.OfInt {
+        private final ShuffledIndices order;
+        private final int expectedModCount = modCount;
+
+        public RandomizedQueueIterator() {
+            order = new ShuffledIndices(size, random == null ? null : random.split());
+        }
+
+        @Override
+        public boolean hasNext() {
+            return order.hasNext();
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) throw new NoSuchElementException("Stack Overflow");
+            if (modCount != expectedModCount) throw new ConcurrentModificationException("Queue changed while iterating");
+            return rq[order.next()];
+        }
+
+        @Override
+        public void remove() { throw new UnsupportedOperationException("Remove method not supported"); }
+    }
+
+    public static void main(String args[]) {
+        IntRandomizedQueue rq = new IntRandomizedQueue();
+        rq.enqueue(1);
+        rq.enqueue(2);
+        rq.enqueue(3);
+        rq.enqueue(4);
+        rq.enqueue(5);
+        rq.enqueue(6);
+
+        for (PrimitiveIterator.OfInt it = rq.iterator(); it.hasNext(); ) {
+            System.out.println(it.nextInt());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package queues;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * ResizingArrayDeque for long values, stored in a long[] so nothing is
+ * boxed.
+ */
+public class LongDeque implements Iterable<Long> {
+    private static final int MIN_CAPACITY = 8;
+    private long[] items;
+    private int head; // index of the first item
+    private int size;
+
+    public LongDeque() {
+        items = new long[MIN_CAPACITY];
+        head = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addFirst(long item) {
+        if (size == items.length) resize(2 * items.length);
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        size++;
+    }
+
+    public void addLast(long item) {
+        if (size == items.length) resize(2 * items.length);
+        items[(head + size) & (items.length - 1)] = item;
+        size++;
+    }
+
+    public long removeFirst() {
+        checkEmpty();
+        long item = items[head];
+        head = (head + 1) & (items.length - 1);
+        size--;
+        shrink();
+
+        return item;
+    }
+
+    public long removeLast() {
+        checkEmpty();
+        int tail = (head + size - 1) & (items.length - 1);
+        long item = items[tail];
+        size--;
+        shrink();
+
+        return item;
+    }
+
+    /**
+     * Iterates from first to last; nextLong() does not box
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new DequeIterator();
+    }
+
+    private void shrink() {
+        if (items.length > MIN_CAPACITY && size == items.length / 4) resize(items.length / 2);
+    }
+
+    // copies the items to the front of a new array, unwrapping them
+    private void resize(int capacity) {
+        long[] newItems = new long[capacity];
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, newItems, 0, firstPart);
+        System.arraycopy(items, 0, newItems, firstPart, size - firstPart);
+        items = newItems;
+        head = 0;
+    }
+
+    private void checkEmpty() {
+        if (size == 0) throw new NoSuchElementException("Deque is empty");
+    }
+
+    private class DequeIterator implements PrimitiveIterator.OfLong {
+        private int i = 0;
+
+        @Override
+        public boolean hasNext() {
+            return i < size;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return items[(head + i++) & (items.length - 1)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static void main(String args[]) {
+        LongDeque rq = new LongDeque();
+        rq.addLast(1);
+        System.out.println(rq.removeLast());
+        rq.addLast(3);
+        rq.addLast(4);
+        rq.addFirst(5);
+        System.out.println(rq.removeFirst());
+        System.out.println(rq.removeLast());
+        System.out.println(rq.removeLast());
+
+        for (int i = 0; i < 20; i++) {
+            if (i % 2 == 0) rq.addFirst(i);
+            else rq.addLast(i);
+        }
+        for (PrimitiveIterator.OfLong it = rq.iterator(); it.hasNext(); ) {
+            System.out.println(it.nextLong());
+        }
+    }
+}
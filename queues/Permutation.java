@@ -2,8 +2,38 @@ package queues;
 
 import edu.princeton.cs.algs4.StdIn;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * java Permutation k            prints k of the strings on standard input
+ * java Permutation -r k [file]  prints k of the lines of file (or standard input)
+ *
+ * The first form keeps every string in a RandomizedQueue. The second keeps
+ * only k lines in memory, using reservoir sampling with skips (Li's
+ * Algorithm L): after the reservoir fills up, it draws how many lines to
+ * skip before the next one that replaces a random reservoir entry. Skipped
+ * lines are only scanned for their line break, never decoded into Strings,
+ * so sampling a large log costs little more than reading it.
+ */
 public class Permutation {
-    public static void main(String args[]) {
+    private static final int BUFFER = 1 << 16;
+
+    public static void main(String args[]) throws IOException {
+        if (args.length > 0 && args[0].equals("-r")) {
+            int k = Integer.parseInt(args[1]);
+            if (k < 0) throw new IllegalArgumentException("k needs to be bigger than 0");
+            InputStream in = args.length > 2 ? new FileInputStream(args[2]) : System.in;
+            try (LineReader lines = new LineReader(in)) {
+                for (String line : reservoir(lines, k)) System.out.println(line);
+            }
+            return;
+        }
+
         int k = Integer.parseInt(args[0]);
         if (k < 0) throw new IllegalArgumentException("k needs to be bigger than 0 and less than n");
         if (k == 0) return;
@@ -17,4 +47,118 @@ public class Permutation {
             if (k == 0) return;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A uniformly random sample of min(k, lines) lines, in random order
+     */
+    private static String[] reservoir(LineReader lines, int k) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] sample = new String[k];
+        int n = 0;
+        while (n < k && (sample[n] = lines.readLine()) != null) n++;
+        if (n < k) {
+            sample = Arrays.copyOf(sample, n);
+        } else if (k > 0) {
+            // w is the largest of k uniform keys; the next line that beats it is geometric
+            double w = Math.exp(Math.log(uniform(random)) / k);
+            while (true) {
+                long skip = (long) Math.floor(Math.log(uniform(random)) / Math.log1p(-w));
+                if (!lines.skipLines(skip)) break;
+                String line = lines.readLine();
+                if (line == null) break;
+                sample[random.nextInt(k)] = line;
+                w *= Math.exp(Math.log(uniform(random)) / k);
+            }
+        }
+        // the reservoir is a random subset but not in random order
+        for (int i = sample.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = sample[i];
+            sample[i] = sample[j];
+            sample[j] = tmp;
+        }
+        return sample;
+    }
+
+    // uniform in (0, 1), so its log is finite
+    private static double uniform(ThreadLocalRandom random) {
+        double u;
+        do u = random.nextDouble(); while (u == 0.0);
+        return u;
+    }
+
+    /**
+     * Reads UTF-8 lines from a stream through its own buffer. Lines that
+     * are skipped are only searched for '\n' (which never occurs inside a
+     * multi-byte UTF-8 character), so they are never decoded.
+     */
+    private static class LineReader implements AutoCloseable {
+        private final InputStream in;
+        private final byte[] buf = new byte[BUFFER];
+        private int pos, end;
+        private byte[] line = new byte[256]; // bytes of a line that spans buffer refills
+
+        private LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        private boolean fill() throws IOException {
+            end = in.read(buf);
+            pos = 0;
+            if (end < 0) end = 0;
+            return end > 0;
+        }
+
+        /**
+         * Skips count lines
+         * @return false if the input ended first
+         */
+        private boolean skipLines(long count) throws IOException {
+            while (count > 0) {
+                if (pos == end && !fill()) return false;
+                for (; pos < end; pos++) {
+                    if (buf[pos] == '\n' && --count == 0) {
+                        pos++;
+                        return true;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Next line without its line break (\n or \r\n), or null at the end
+         */
+        private String readLine() throws IOException {
+            int len = 0;
+            while (true) {
+                if (pos == end && !fill()) {
+                    return len == 0 ? null : decode(line, 0, len);
+                }
+                int start = pos;
+                while (pos < end && buf[pos] != '\n') pos++;
+                if (pos < end && len == 0) {
+                    // the whole line is in the buffer
+                    return decode(buf, start, pos++ - start);
+                }
+                if (len + pos - start > line.length) line = Arrays.copyOf(line, Math.max(2 * line.length, len + pos - start));
+                System.arraycopy(buf, start, line, len, pos - start);
+                len += pos - start;
+                if (pos < end) {
+                    pos++;
+                    return decode(line, 0, len);
+                }
+            }
+        }
+
+        private static String decode(byte[] bytes, int from, int len) {
+            if (len > 0 && bytes[from + len - 1] == '\r') len--;
+            return new String(bytes, from, len, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -1,17 +1,44 @@
 package queues;
 
-import edu.princeton.cs.algs4.StdRandom;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
-
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random draws come from ThreadLocalRandom, so queues and iterators used
+ * on different threads never contend for a shared generator, or from a
+ * SplittableRandom given to the constructor for reproducible runs; each
+ * iterator of such a queue gets its own split of it.
+ *
+ * Iterators shuffle lazily (see ShuffledIndices) instead of copying the
+ * queue, and fail fast if the queue is changed while iterating.
+ *
+ * The bulk operations grow the array at most once per call, and draw k
+ * items with one partial Fisher-Yates pass instead of k separate calls.
+ */
 public class RandomizedQueue<Item> implements Iterable<Item> {
     private int size;
     private Item[] rq;
+    private final SplittableRandom random; // null to use ThreadLocalRandom
+    private int modCount;                  // changes, to detect iterators that are out of date
 
     public RandomizedQueue() {
+        this(null);
+    }
+
+    /**
+     * @param random SplittableRandom to draw from, or null to use ThreadLocalRandom
+     */
+    public RandomizedQueue(SplittableRandom random) {
         size = 0;
         rq = (Item[]) new Object[2];
+        this.random = random;
     }
 
     public boolean isEmpty() {
@@ -26,31 +53,126 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         if (item == null) throw new IllegalArgumentException("Item must be not null");
         if (size == rq.length) resize(2 * size);
         rq[size++] = item;
+        modCount++;
+    }
+
+    /**
+     * Adds all items of the array, all or nothing: if one is null the queue
+     * is left unchanged
+     */
+    public void enqueueAll(Item[] items) {
+        if (items == null) throw new IllegalArgumentException("Items must be not null");
+        for (Item item : items) {
+            if (item == null) throw new IllegalArgumentException("Item must be not null");
+        }
+        ensureCapacity(size + items.length);
+        System.arraycopy(items, 0, rq, size, items.length);
+        size += items.length;
+        modCount++;
+    }
+
+    /**
+     * Adds all items, all or nothing: if one is null the queue is left
+     * unchanged. The items are copied to an array first, so items may be
+     * iterable only once.
+     */
+    public void enqueueAll(Iterable<? extends Item> items) {
+        if (items == null) throw new IllegalArgumentException("Items must be not null");
+        Object[] copy;
+        if (items instanceof Collection) {
+            copy = ((Collection<?>) items).toArray();
+        } else {
+            List<Item> list = new ArrayList<>();
+            for (Item item : items) list.add(item);
+            copy = list.toArray();
+        }
+        enqueueAll((Item[]) copy);
     }
 
     public Item dequeue() {
         if (isEmpty()) throw new NoSuchElementException("Stack overflow");
-        int idx = StdRandom.uniform(size);
+        int idx = uniform(size);
         Item item = rq[idx];
         rq[idx] = rq[size - 1];
         rq[--size] = null;
+        modCount++;
         if (size > 0 && size == rq.length/4) resize(2 * size);
 
         return item;
     }
 
+    /**
+     * Removes k random items
+     * @return List of the items, in random order
+     */
+    public List<Item> dequeue(int k) {
+        checkDraw(k);
+        // partial Fisher-Yates: move k random items to the end of the array
+        for (int i = 0; i < k; i++) {
+            int last = size - 1 - i;
+            int idx = uniform(last + 1);
+            Item item = rq[idx];
+            rq[idx] = rq[last];
+            rq[last] = item;
+        }
+        List<Item> items = Arrays.asList(Arrays.copyOfRange(rq, size - k, size));
+        Arrays.fill(rq, size - k, size, null);
+        size -= k;
+        modCount++;
+        if (size > 0 && size <= rq.length/4) resize(2 * size);
+
+        return items;
+    }
+
     public Item sample() {
         if (isEmpty()) throw new NoSuchElementException("Stack overflow");
-        return rq[StdRandom.uniform(size)];
+        return rq[uniform(size)];
     }
 
-    private void resize(int newSize) {
-        Item[] newRq = (Item[]) new Object[newSize];
-        for (int i = 0; i < Math.min(newSize, rq.length); i++) {
-            newRq[i] = rq[i];
+    /**
+     * k random items, all different
+     * @return List of the items, in random order
+     */
+    public List<Item> sample(int k) {
+        return sample(k, false);
+    }
+
+    /**
+     * k random items, drawn with or without replacement. Without
+     * replacement the queue is not touched: indices come from a lazy
+     * Fisher-Yates (ShuffledIndices), so the cost is O(k) whatever the size.
+     * @return List of the items, in the order drawn
+     */
+    public List<Item> sample(int k, boolean replacement) {
+        List<Item> items = new ArrayList<>(Math.max(k, 0));
+        if (replacement) {
+            if (k < 0) throw new IllegalArgumentException("k must not be negative");
+            if (k > 0 && isEmpty()) throw new NoSuchElementException("Stack overflow");
+            for (int i = 0; i < k; i++) items.add(rq[uniform(size)]);
+        } else {
+            checkDraw(k);
+            ShuffledIndices order = new ShuffledIndices(size, random);
+            for (int i = 0; i < k; i++) items.add(rq[order.next()]);
         }
+        return items;
+    }
+
+    private void checkDraw(int k) {
+        if (k < 0) throw new IllegalArgumentException("k must not be negative");
+        if (k > size) throw new NoSuchElementException("Cannot draw " + k + " items out of " + size);
+    }
 
-        rq = newRq;
+    private int uniform(int n) {
+        return random == null ? ThreadLocalRandom.current().nextInt(n) : random.nextInt(n);
+    }
+
+    private void resize(int newSize) {
+        rq = Arrays.copyOf(rq, newSize);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0) throw new IllegalStateException("Queue is full");
+        if (capacity > rq.length) resize(Math.max(capacity, 2 * rq.length));
     }
 
     @Override
@@ -59,31 +181,23 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     }
 
     private class RandomizedQueueIterator implements Iterator<Item> {
-        private Item[] trq;
-        private int tsize;
+        private final ShuffledIndices order;
+        private final int expectedModCount = modCount;
 
         public RandomizedQueueIterator() {
-            trq = (Item[]) new Object[size];
-            for (int i = 0; i < size; i++) {
-                trq[i] = rq[i];
-            }
-            tsize = size;
+            order = new ShuffledIndices(size, random == null ? null : random.split());
         }
 
         @Override
         public boolean hasNext() {
-            return tsize > 0;
+            return order.hasNext();
         }
 
         @Override
         public Item next() {
             if (!hasNext()) throw new NoSuchElementException("Stack Overflow");
-            int idx = StdRandom.uniform(tsize);
-            Item item = trq[idx];
-            trq[idx] = trq[tsize - 1];
-            trq[--tsize] = null;
-
-            return item;
+            if (modCount != expectedModCount) throw new ConcurrentModificationException("Queue changed while iterating");
+            return rq[order.next()];
         }
 
         @Override
@@ -0,0 +1,136 @@
+package queues;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Same API as Deque, backed by a circular array instead of linked nodes.
+ * Items sit next to each other in memory and there is no Node per item.
+ * The capacity is a power of two, so wrapping around is a mask; it doubles
+ * when full and halves when a quarter full, which keeps every operation
+ * amortized O(1).
+ */
+public class ResizingArrayDeque<Item> implements Iterable<Item> {
+    private static final int MIN_CAPACITY = 8;
+    private Item[] items;
+    private int head; // index of the first item
+    private int size;
+
+    public ResizingArrayDeque() {
+        items = (Item[]) new Object[MIN_CAPACITY];
+        head = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addFirst(Item item) {
+        checkNull(item);
+        if (size == items.length) resize(2 * items.length);
+        head = (head - 1) & (items.length - 1);
+        items[head] = item;
+        size++;
+    }
+
+    public void addLast(Item item) {
+        checkNull(item);
+        if (size == items.length) resize(2 * items.length);
+        items[(head + size) & (items.length - 1)] = item;
+        size++;
+    }
+
+    public Item removeFirst() {
+        checkEmpty();
+        Item item = items[head];
+        items[head] = null;
+        head = (head + 1) & (items.length - 1);
+        size--;
+        shrink();
+
+        return item;
+    }
+
+    public Item removeLast() {
+        checkEmpty();
+        int tail = (head + size - 1) & (items.length - 1);
+        Item item = items[tail];
+        items[tail] = null;
+        size--;
+        shrink();
+
+        return item;
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return new DequeIterator();
+    }
+
+    private void shrink() {
+        if (items.length > MIN_CAPACITY && size == items.length / 4) resize(items.length / 2);
+    }
+
+    // copies the items to the front of a new array, unwrapping them
+    private void resize(int capacity) {
+        Item[] newItems = (Item[]) new Object[capacity];
+        int firstPart = Math.min(size, items.length - head);
+        System.arraycopy(items, head, newItems, 0, firstPart);
+        System.arraycopy(items, 0, newItems, firstPart, size - firstPart);
+        items = newItems;
+        head = 0;
+    }
+
+    private void checkEmpty() {
+        if (size == 0) throw new NoSuchElementException("Deque is empty");
+    }
+
+    private void checkNull(Item item) {
+        if (item == null) throw new IllegalArgumentException("Cannot insert null item");
+    }
+
+    private class DequeIterator implements Iterator<Item> {
+        private int i = 0;
+
+        @Override
+        public boolean hasNext() {
+            return i < size;
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return items[(head + i++) & (items.length - 1)];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static void main(String args[]) {
+        ResizingArrayDeque<Integer> rq = new ResizingArrayDeque<>();
+        rq.addLast(1);
+        System.out.println(rq.removeLast());
+        rq.addLast(3);
+        rq.addLast(4);
+        rq.addFirst(5);
+        System.out.println(rq.removeFirst());
+        System.out.println(rq.removeLast());
+        System.out.println(rq.removeLast());
+
+        for (int i = 0; i < 20; i++) {
+            if (i % 2 == 0) rq.addFirst(i);
+            else rq.addLast(i);
+        }
+        for (Integer nb : rq) {
+            System.out.println(nb);
+        }
+    }
+}
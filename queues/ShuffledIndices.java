@@ -0,0 +1,111 @@
+package queues;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The indices 0..n-1 in random order, drawn one at a time. This is
+ * Fisher-Yates on the identity array 0..n-1 without storing the array:
+ * only positions whose value was swapped away from the identity are kept,
+ * in an open-addressing int-to-int map. Taking k indices costs O(k) time
+ * and O(min(k, n - k)) memory, so starting an iteration is O(1) and
+ * iterators that stop early never pay for the whole queue.
+ */
+class ShuffledIndices {
+    private static final int EMPTY = -1;
+    private final SplittableRandom random; // null to use ThreadLocalRandom
+    private int remaining;                 // positions [0, remaining) are not taken yet
+    private int[] keys, values;            // keys[i] = position, values[i] = index now there
+    private int entries;
+    private int shift;                     // 32 - log2(keys.length)
+
+    /**
+     * @param n int number of indices
+     * @param random SplittableRandom, or null to use ThreadLocalRandom
+     */
+    ShuffledIndices(int n, SplittableRandom random) {
+        this.random = random;
+        remaining = n;
+        keys = new int[16];
+        values = new int[16];
+        Arrays.fill(keys, EMPTY);
+        shift = 32 - 4;
+    }
+
+    boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * Next index; callers check hasNext() first
+     * @return int
+     */
+    int next() {
+        int j = random == null ? ThreadLocalRandom.current().nextInt(remaining) : random.nextInt(remaining);
+        int last = --remaining;
+        int picked = get(j);
+        // move the value at the last untaken position into the hole at j
+        if (j != last) put(j, get(last));
+        remove(last);
+        return picked;
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> shift; // Fibonacci hashing: top bits of the product
+    }
+
+    private int get(int key) {
+        for (int i = slot(key); keys[i] != EMPTY; i = (i + 1) & (keys.length - 1)) {
+            if (keys[i] == key) return values[i];
+        }
+        return key; // never swapped: still the identity
+    }
+
+    private void put(int key, int value) {
+        int i = slot(key);
+        while (keys[i] != EMPTY && keys[i] != key) i = (i + 1) & (keys.length - 1);
+        if (keys[i] == EMPTY) {
+            if (2 * (entries + 1) > keys.length) {
+                grow();
+                put(key, value);
+                return;
+            }
+            entries++;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    // linear probing removal: shift later entries of the cluster back into the gap
+    private void remove(int key) {
+        int mask = keys.length - 1;
+        int gap = slot(key);
+        while (keys[gap] != key) {
+            if (keys[gap] == EMPTY) return;
+            gap = (gap + 1) & mask;
+        }
+        for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            // the entry at i may move to gap if gap lies between its home slot and i
+            if (((i - slot(keys[i])) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+        entries--;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new int[2 * oldKeys.length];
+        Arrays.fill(keys, EMPTY);
+        shift--;
+        entries = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
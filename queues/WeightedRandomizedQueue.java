@@ -0,0 +1,181 @@
+package queues;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RandomizedQueue where every item has a positive weight, and dequeue()
+ * and sample() pick an item with probability weight / totalWeight().
+ *
+ * Weights are kept in a Fenwick (binary indexed) tree over the array
+ * slots, so enqueue, dequeue and sample are all O(log n): a draw walks
+ * down the tree to the slot where the running sum of weights passes a
+ * uniform point in [0, totalWeight()). Removing an item moves the last
+ * item into its slot, as in RandomizedQueue, which is two tree updates.
+ *
+ * Floating point sums lose up to a rounding error of the values added
+ * to them, so removing a heavy item can wipe out the lighter weights that
+ * share its tree nodes. totalWeight() is therefore kept separately as a
+ * compensated (Kahan) sum, and the tree is rebuilt from the exact weights
+ * as soon as the weight that went through it since the last rebuild is
+ * more than CHURN times totalWeight(). That keeps every prefix sum within
+ * about CHURN * log n rounding errors of totalWeight(). With weights of
+ * similar size this is O(1) amortized per update; removing an item that
+ * outweighs all the others together costs one O(n) rebuild.
+ */
+public class WeightedRandomizedQueue<Item> {
+    private static final double CHURN = 1024;
+    private int size;
+    private Item[] rq;
+    private double[] weights;              // weights[i] = weight of rq[i]
+    private double[] tree;                 // Fenwick tree over weights, 1-based, rq.length + 1 entries
+    private double total, compensation;    // Kahan sum of the weights
+    private double churn;                  // sum of |delta| added to the tree since the last rebuild
+    private final SplittableRandom random; // null to use ThreadLocalRandom
+
+    public WeightedRandomizedQueue() {
+        this(null);
+    }
+
+    /**
+     * @param random SplittableRandom to draw from, or null to use ThreadLocalRandom
+     */
+    public WeightedRandomizedQueue(SplittableRandom random) {
+        size = 0;
+        rq = (Item[]) new Object[2];
+        weights = new double[2];
+        tree = new double[3];
+        this.random = random;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sum of the weights of all items
+     */
+    public double totalWeight() {
+        return total;
+    }
+
+    public void enqueue(Item item, double weight) {
+        if (item == null) throw new IllegalArgumentException("Item must be not null");
+        if (!(weight > 0.0) || Double.isInfinite(weight)) throw new IllegalArgumentException("Weight must be positive and finite");
+        if (size == rq.length) resize(2 * size);
+        rq[size] = item;
+        weights[size] = weight;
+        add(size, weight);
+        size++;
+        if (churn > CHURN * total) rebuild();
+    }
+
+    public Item dequeue() {
+        if (isEmpty()) throw new NoSuchElementException("Stack overflow");
+        int idx = pick();
+        Item item = rq[idx];
+        int last = size - 1;
+        if (idx != last) {
+            add(idx, weights[last] - weights[idx]);
+            rq[idx] = rq[last];
+            weights[idx] = weights[last];
+        }
+        add(last, -weights[last]);
+        rq[last] = null;
+        weights[last] = 0.0;
+        size--;
+        if (size > 0 && size == rq.length/4) resize(rq.length / 2);
+        else if (churn > CHURN * total) rebuild();
+
+        return item;
+    }
+
+    public Item sample() {
+        if (isEmpty()) throw new NoSuchElementException("Stack overflow");
+        return rq[pick()];
+    }
+
+    /**
+     * Slot of a random item, chosen with probability proportional to its weight
+     */
+    private int pick() {
+        if (!(total > 0.0)) rebuild(); // only rounding can bring a non-empty total to 0
+        double r = (random == null ? ThreadLocalRandom.current().nextDouble() : random.nextDouble()) * total;
+        // find the first slot whose prefix sum is bigger than r, one tree level at a time
+        int pos = 0;
+        for (int step = rq.length; step > 0; step >>= 1) {
+            if (pos + step <= rq.length && tree[pos + step] <= r) {
+                pos += step;
+                r -= tree[pos];
+            }
+        }
+        // rounding can only push pos past the last item, never onto an empty slot in the middle
+        return Math.min(pos, size - 1);
+    }
+
+    // adds delta to the weight of slot i
+    private void add(int i, double delta) {
+        for (int j = i + 1; j < tree.length; j += j & -j) tree[j] += delta;
+        churn += Math.abs(delta);
+        double y = delta - compensation;
+        double t = total + y;
+        compensation = (t - total) - y;
+        total = t;
+    }
+
+    // rebuilds the tree and the total from the exact weights in O(capacity)
+    private void rebuild() {
+        Arrays.fill(tree, 0.0);
+        total = 0.0;
+        compensation = 0.0;
+        for (int j = 1; j < tree.length; j++) {
+            tree[j] += weights[j - 1];
+            int parent = j + (j & -j);
+            if (parent < tree.length) tree[parent] += tree[j];
+            double y = weights[j - 1] - compensation;
+            double t = total + y;
+            compensation = (t - total) - y;
+            total = t;
+        }
+        churn = 0.0;
+    }
+
+    private void resize(int newSize) {
+        rq = Arrays.copyOf(rq, newSize);
+        weights = Arrays.copyOf(weights, newSize);
+        tree = new double[newSize + 1];
+        rebuild();
+    }
+
+    public static void main(String args[]) {
+        WeightedRandomizedQueue<String> rq = new WeightedRandomizedQueue<>();
+        rq.enqueue("rare", 1);
+        rq.enqueue("common", 10);
+        rq.enqueue("frequent", 100);
+
+        int[] counts = new int[3];
+        for (int i = 0; i < 111000; i++) {
+            String s = rq.sample();
+            counts[s.equals("rare") ? 0 : s.equals("common") ? 1 : 2]++;
+        }
+        System.out.println("rare " + counts[0] + ", common " + counts[1] + ", frequent " + counts[2]);
+        while (!rq.isEmpty()) {
+            System.out.println(rq.dequeue());
+        }
+
+        // removing one heavy item must not cancel out the light ones
+        WeightedRandomizedQueue<Integer> skewed = new WeightedRandomizedQueue<>();
+        for (int i = 0; i < 1023; i++) skewed.enqueue(i, 1.0);
+        skewed.enqueue(-1, 1e20);
+        System.out.println("dequeued " + skewed.dequeue() + ", total weight left " + skewed.totalWeight());
+        int[] seen = new int[1023];
+        for (int i = 0; i < 1023000; i++) seen[skewed.sample()]++;
+        System.out.println("samples per light item: " + Arrays.stream(seen).min().getAsInt() + ".." + Arrays.stream(seen).max().getAsInt());
+    }
+}
@@ -0,0 +1,167 @@
+package queues;
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stress test and throughput benchmark for WorkStealingDeque.
+ *
+ * Stress: the owner pushes items 0..n-1, popping some of them back at
+ * random, while the thieves steal. Every item must be taken exactly once,
+ * by the owner or by a single thief.
+ *
+ * Throughput: the owner pushes ITEMS items in bursts and pops half of
+ * each burst back, while the thieves steal; the time until every item is
+ * taken gives items per second. The same workload on a ResizingArrayDeque
+ * guarded by a lock is the baseline.
+ *
+ * On a single core (OpenJDK 17) threads only interleave, so this shows
+ * the cost of the operations more than their scaling:
+ *
+ * % java queues.WorkStealingBenchmark 1 2 4
+ * stress   1 thieves: 2000000 items taken once each, 50.1% stolen
+ * stress   2 thieves: 2000000 items taken once each, 49.8% stolen
+ * stress   4 thieves: 2000000 items taken once each, 49.4% stolen
+ *  thieves    lock-free (M/s)       locked (M/s)
+ *        1              16.06              18.56
+ *        2              11.32              10.14
+ *        4               6.60               5.51
+ */
+public class WorkStealingBenchmark {
+    private static final int STRESS_ITEMS = 2000000;
+    private static final int ITEMS = 4000000;
+    private static final int BURST = 64;
+    private static final int RUNS = 3;
+
+    /**
+     * The three deque operations, so both deques run the same workload
+     */
+    private interface Tasks {
+        void push(Integer item);
+        Integer pop();
+        Integer steal();
+    }
+
+    private static Tasks lockFree() {
+        WorkStealingDeque<Integer> d = new WorkStealingDeque<>();
+        return new Tasks() {
+            public void push(Integer item) { d.push(item); }
+            public Integer pop() { return d.pop(); }
+            public Integer steal() { return d.steal(); }
+        };
+    }
+
+    private static Tasks locked() {
+        ResizingArrayDeque<Integer> d = new ResizingArrayDeque<>();
+        return new Tasks() {
+            public synchronized void push(Integer item) { d.addLast(item); }
+            public synchronized Integer pop() { return d.isEmpty() ? null : d.removeLast(); }
+            public synchronized Integer steal() { return d.isEmpty() ? null : d.removeFirst(); }
+        };
+    }
+
+    /**
+     * Runs the owner on the calling thread and thieves on their own threads
+     * until all n items are taken
+     * @return int[][] taken[t][i] = times thread t took item i (owner is t = 0)
+     *         when counting, else null; the elapsed nanoseconds are in ns[0]
+     */
+    private static int[][] run(Tasks deque, int thieves, int n, boolean count, long seed, long[] ns) throws InterruptedException {
+        int[][] taken = count ? new int[thieves + 1][n] : null;
+        long[] stolen = new long[thieves + 1];
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[thieves];
+        for (int t = 1; t <= thieves; t++) {
+            final int id = t;
+            threads[t - 1] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long got = 0;
+                while (!done.get()) {
+                    Integer item = deque.steal();
+                    if (item == null) continue;
+                    got++;
+                    if (taken != null) taken[id][item]++;
+                }
+                stolen[id] = got;
+            });
+            threads[t - 1].start();
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        long begin = System.nanoTime();
+        start.countDown();
+        long popped = 0;
+        for (int i = 0; i < n; ) {
+            int burst = Math.min(BURST, n - i);
+            for (int k = 0; k < burst; k++) deque.push(i++);
+            int pops = count ? random.nextInt(burst + 1) : burst / 2;
+            for (int k = 0; k < pops; k++) {
+                Integer item = deque.pop();
+                if (item == null) break;
+                popped++;
+                if (taken != null) taken[0][item]++;
+            }
+        }
+        // the owner helps drain what is left, then waits for the thieves' last steals
+        Integer item;
+        while ((item = deque.pop()) != null) {
+            popped++;
+            if (taken != null) taken[0][item]++;
+        }
+        done.set(true);
+        for (Thread t : threads) t.join();
+        ns[0] = System.nanoTime() - begin;
+
+        long total = popped;
+        for (long s : stolen) total += s;
+        if (total != n) throw new IllegalStateException(total + " items taken out of " + n);
+        return taken;
+    }
+
+    private static void stress(int thieves) throws InterruptedException {
+        long[] ns = new long[1];
+        int[][] taken = run(lockFree(), thieves, STRESS_ITEMS, true, thieves, ns);
+        long byThieves = 0;
+        for (int i = 0; i < STRESS_ITEMS; i++) {
+            int times = 0;
+            for (int[] t : taken) times += t[i];
+            if (times != 1) throw new IllegalStateException("Item " + i + " taken " + times + " times");
+        }
+        for (int t = 1; t < taken.length; t++) for (int x : taken[t]) byThieves += x;
+        StdOut.printf("stress  %2d thieves: %d items taken once each, %.1f%% stolen%n",
+                thieves, STRESS_ITEMS, 100.0 * byThieves / STRESS_ITEMS);
+    }
+
+    private static double throughput(boolean lockFree, int thieves) throws InterruptedException {
+        long[] ns = new long[1];
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r <= RUNS; r++) {
+            run(lockFree ? lockFree() : locked(), thieves, ITEMS, false, r, ns);
+            if (r > 0) best = Math.min(best, ns[0]); // run 0 warms up
+        }
+        return ITEMS / (best / 1e9) / 1e6;
+    }
+
+    public static void main(String args[]) throws InterruptedException {
+        int[] thieves = { 1, 2, 4, 8 };
+        if (args.length > 0) {
+            thieves = new int[args.length];
+            for (int i = 0; i < args.length; i++) thieves[i] = Integer.parseInt(args[i]);
+        }
+
+        for (int t : thieves) stress(t);
+
+        StdOut.printf("%8s %18s %18s%n", "thieves", "lock-free (M/s)", "locked (M/s)");
+        for (int t : thieves) {
+            StdOut.printf("%8d %18.2f %18.2f%n", t, throughput(true, t), throughput(false, t));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package queues;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free work-stealing deque (Chase and Lev, 2005). One owner thread
+ * pushes and pops items at the bottom, like a stack; any number of thief
+ * threads steal items from the top, oldest first.
+ *
+ * bottom is only written by the owner and top only moves forward through
+ * a compare-and-set, so push never synchronizes, pop only does a CAS when
+ * it races with thieves for the last item, and each steal is a single CAS.
+ * Items live in a circular array that the owner replaces with one twice
+ * as large when it fills up; thieves still reading the old array see the
+ * same items at the same positions.
+ *
+ * All shared fields are volatile or atomic. Java volatiles are
+ * sequentially consistent, which gives the store-load ordering pop needs
+ * between writing bottom and reading top.
+ *
+ * Slots of stolen items are not cleared (the owner may already reuse
+ * them), so up to one array's worth of taken items can stay reachable.
+ */
+public class WorkStealingDeque<Item> {
+    private static final int MIN_CAPACITY = 32;
+    private volatile AtomicReferenceArray<Item> items;
+    private volatile long bottom;                      // next slot to push to, owner only
+    private final AtomicLong top = new AtomicLong();   // next slot to steal from
+
+    public WorkStealingDeque() {
+        items = new AtomicReferenceArray<>(MIN_CAPACITY);
+    }
+
+    /**
+     * Number of items, which may be out of date by the time it returns
+     */
+    public int size() {
+        long n = bottom - top.get();
+        return n < 0 ? 0 : (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Adds item at the bottom. Owner thread only.
+     */
+    public void push(Item item) {
+        if (item == null) throw new IllegalArgumentException("Cannot insert null item");
+        long b = bottom;
+        long t = top.get();
+        AtomicReferenceArray<Item> a = items;
+        if (b - t >= a.length()) a = grow(a, t, b);
+        a.set((int) b & (a.length() - 1), item);
+        bottom = b + 1;
+    }
+
+    /**
+     * Removes the item at the bottom, the one pushed last. Owner thread only.
+     * @return the item, or null if the deque is empty or a thief took the
+     *         last item first
+     */
+    public Item pop() {
+        long b = bottom - 1;
+        AtomicReferenceArray<Item> a = items;
+        bottom = b;
+        long t = top.get();
+        if (t > b) {
+            // empty
+            bottom = b + 1;
+            return null;
+        }
+        int slot = (int) b & (a.length() - 1);
+        Item item = a.get(slot);
+        if (t < b) {
+            // more than one item left: thieves only read slot t, so this one is ours
+            a.set(slot, null);
+            return item;
+        }
+        // last item: race the thieves for it
+        if (!top.compareAndSet(t, t + 1)) item = null;
+        bottom = b + 1;
+        return item;
+    }
+
+    /**
+     * Removes the item at the top, the oldest one. Any thread.
+     * @return the item, or null if the deque is empty or another thread
+     *         took the item first
+     */
+    public Item steal() {
+        long t = top.get();
+        long b = bottom;
+        if (t >= b) return null;
+        AtomicReferenceArray<Item> a = items;
+        Item item = a.get((int) t & (a.length() - 1));
+        if (!top.compareAndSet(t, t + 1)) return null;
+        return item;
+    }
+
+    // copies items [t, b) to an array twice as large, at the same positions mod its length
+    private AtomicReferenceArray<Item> grow(AtomicReferenceArray<Item> a, long t, long b) {
+        int capacity = a.length() << 1;
+        if (capacity < 0) throw new IllegalStateException("Deque is full");
+        AtomicReferenceArray<Item> bigger = new AtomicReferenceArray<>(capacity);
+        for (long i = t; i < b; i++) {
+            bigger.set((int) i & (capacity - 1), a.get((int) i & (a.length() - 1)));
+        }
+        items = bigger;
+        return bigger;
+    }
+
+    public static void main(String args[]) {
+        WorkStealingDeque<Integer> d = new WorkStealingDeque<>();
+        for (int i = 1; i <= 5; i++) d.push(i);
+        System.out.println(d.pop());
+        System.out.println(d.steal());
+        System.out.println(d.pop());
+        System.out.println(d.steal());
+        System.out.println(d.pop());
+        System.out.println(d.pop());
+    }
+}